@@ -1,26 +1,116 @@
 package com.Vineyard.microservicio.assemblers;
 
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
 import com.Vineyard.microservicio.controller.PedidoController;
+import com.Vineyard.microservicio.dto.PedidoResumen;
 import com.Vineyard.microservicio.model.Pedido;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 
 
+/*
+ * Arma el EntityModel de cada pedido con sus seis enlaces.
+ *
+ * linkTo(methodOn(...)) crea un proxy y vuelve a resolver el mapeo del controlador en cada llamada, aunque
+ * entre un pedido y otro solo cambian el id y el clienteId. Por eso los enlaces se resuelven una vez por
+ * petición, con el id y el clienteId como variables de plantilla, y se guardan como atributo del request;
+ * para cada pedido solo se concatena el valor en la plantilla. Los href son los mismos que daría linkTo.
+ */
 @Component
 public class PedidoModelAssembler implements RepresentationModelAssembler<Pedido, EntityModel<Pedido>> {
 
+    private static final String ATRIBUTO_ENLACES = PedidoModelAssembler.class.getName() + ".enlaces";
+
+    private static final LinkRelation TODOS = LinkRelation.of("todos");
+    private static final LinkRelation POR_CLIENTE = LinkRelation.of("por-cliente");
+    private static final LinkRelation CANTIDAD_CLIENTE = LinkRelation.of("cantidad-cliente");
+    private static final LinkRelation ELIMINAR = LinkRelation.of("eliminar");
+    private static final LinkRelation ULTIMOS = LinkRelation.of("ultimos");
+
     @Override
     public EntityModel<Pedido> toModel(Pedido pedido) {
+        Enlaces enlaces = enlaces();
+        String hrefPedido = enlaces.pedido().expandir(pedido.getId());
         return EntityModel.of(pedido,
-        
-            linkTo(methodOn(PedidoController.class).listarPedidos()).withRel("todos"),
-            linkTo(methodOn(PedidoController.class).obtenerPedidosPorCliente(pedido.getClienteId())).withRel("por-cliente"),
-            linkTo(methodOn(PedidoController.class).contarPedidosPorCliente(pedido.getClienteId())).withRel("cantidad-cliente"),
-            linkTo(methodOn(PedidoController.class).eliminarPedido(pedido.getId())).withRel("eliminar"),
-            linkTo(methodOn(PedidoController.class).obtenerUltimosPedidos()).withRel("ultimos")
+            Link.of(hrefPedido, IanaLinkRelations.SELF),
+            enlaces.todos(),
+            Link.of(enlaces.porCliente().expandir(pedido.getClienteId()), POR_CLIENTE),
+            Link.of(enlaces.cantidadCliente().expandir(pedido.getClienteId()), CANTIDAD_CLIENTE),
+            Link.of(hrefPedido, ELIMINAR),
+            enlaces.ultimos()
         );
     }
+
+     /*
+     * Resumen de un pedido (?view=summary): solo self y por-cliente; el resto se obtiene desde el pedido.
+     */
+    public EntityModel<PedidoResumen> toResumenModel(PedidoResumen resumen) {
+        Enlaces enlaces = enlaces();
+        return EntityModel.of(resumen,
+            Link.of(enlaces.pedido().expandir(resumen.getId()), IanaLinkRelations.SELF),
+            Link.of(enlaces.porCliente().expandir(resumen.getClienteId()), POR_CLIENTE)
+        );
+    }
+
+    // Enlaces de la petición actual; fuera de un request se resuelven en cada llamada
+    private static Enlaces enlaces() {
+        RequestAttributes atributos = RequestContextHolder.getRequestAttributes();
+        if (atributos == null) {
+            return resolverEnlaces();
+        }
+        Enlaces enlaces = (Enlaces) atributos.getAttribute(ATRIBUTO_ENLACES, RequestAttributes.SCOPE_REQUEST);
+        if (enlaces == null) {
+            enlaces = resolverEnlaces();
+            atributos.setAttribute(ATRIBUTO_ENLACES, enlaces, RequestAttributes.SCOPE_REQUEST);
+        }
+        return enlaces;
+    }
+
+    // Con un id o clienteId null, linkTo deja la variable de ruta como plantilla: {id}, {clienteId}
+    private static Enlaces resolverEnlaces() {
+        return new Enlaces(
+            Plantilla.de(href(methodOn(PedidoController.class).obtenerPedido(null, null)), "id"),
+            linkTo(methodOn(PedidoController.class).listarPedidos(null, null, null, null, null, null)).withRel(TODOS),
+            Plantilla.de(href(methodOn(PedidoController.class).obtenerPedidosPorCliente(null, null)), "clienteId"),
+            Plantilla.de(href(methodOn(PedidoController.class).contarPedidosPorCliente(null)), "clienteId"),
+            linkTo(methodOn(PedidoController.class).obtenerUltimosPedidos()).withRel(ULTIMOS));
+    }
+
+    private static String href(Object invocacion) {
+        return linkTo(invocacion).withSelfRel().getHref();
+    }
+
+    /*
+     * pedido: href de obtenerPedido y eliminarPedido (mismo path, distinto método HTTP).
+     * todos y ultimos no dependen del pedido y se comparten entre todos los EntityModel.
+     */
+    private record Enlaces(Plantilla pedido, Link todos, Plantilla porCliente, Plantilla cantidadCliente, Link ultimos) {
+    }
+
+    /*
+     * href con una sola variable, partido en lo que va antes y después de ella.
+     */
+    private record Plantilla(String href, String prefijo, String sufijo) {
+
+        static Plantilla de(String href, String variable) {
+            int inicio = href.indexOf("{" + variable + "}");
+            if (inicio < 0) {
+                throw new IllegalStateException("El enlace " + href + " no tiene la variable " + variable);
+            }
+            return new Plantilla(href, href.substring(0, inicio), href.substring(inicio + variable.length() + 2));
+        }
+
+        // Con valor null queda la plantilla sin expandir, igual que con linkTo
+        String expandir(Long valor) {
+            return valor == null ? href : prefijo + valor + sufijo;
+        }
+    }
 }
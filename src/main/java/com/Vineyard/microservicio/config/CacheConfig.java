@@ -0,0 +1,32 @@
+package com.Vineyard.microservicio.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Cachés en memoria para las lecturas de PedidoService.
+ * Tamaño máximo, expiración y estadísticas se configuran en application.properties (spring.cache.caffeine.spec);
+ * las métricas de aciertos, fallos y desalojos se publican en /actuator/metrics/cache.*
+ *
+ * Debajo, la caché de segundo nivel de Hibernate (JCache sobre Caffeine) guarda Pedido, sus productos y las
+ * consultas de fechas pasadas; cada región se configura en hibernate-cache.conf y sus aciertos y fallos se
+ * publican en /actuator/metrics/hibernate.second.level.cache.* (etiqueta region).
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // Pedido por id
+    public static final String CACHE_PEDIDOS = "pedidos";
+
+    // Cantidad de pedidos por id de cliente
+    public static final String CACHE_CONTEO_CLIENTE = "conteoPedidosCliente";
+
+    // Regiones de la caché de segundo nivel: entidades y colección (READ_WRITE, se actualizan al confirmar cada
+    // escritura) y resultados de las consultas de fechas pasadas
+    public static final String REGION_PEDIDO = "pedidos-pedido";
+    public static final String REGION_PRODUCTOS_PEDIDO = "pedidos-pedido-productos";
+    public static final String REGION_PEDIDO_PRODUCTO = "pedidos-pedido-producto";
+    public static final String REGION_PEDIDOS_HISTORICOS = "pedidos-historicos";
+
+}
@@ -0,0 +1,139 @@
+package com.Vineyard.microservicio.config;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Agrupa las lecturas idénticas simultáneas (métodos con @LecturaCompartida de PedidoService): si llega una
+ * llamada con el mismo método y los mismos argumentos que otra en curso, espera su resultado en lugar de
+ * consultar la base otra vez. En los picos, cientos de GET /fecha?fecha=hoy o /cliente/{id} hacen una consulta.
+ *
+ * pedidos.coalescencia.ventana extiende el uso del resultado a las llamadas que llegan hasta ese tiempo después
+ * de terminar (0: solo las que llegan mientras se ejecuta). Los errores no se reutilizan.
+ * Las llamadas desde dentro de una transacción no se agrupan: deben ver sus propias escrituras.
+ *
+ * Métrica pedidos.coalescencia (etiquetas method y resultado=ejecutada|compartida).
+ * Se desactiva con pedidos.coalescencia.habilitada=false.
+ */
+@Configuration
+@ConditionalOnProperty(name = "pedidos.coalescencia.habilitada", havingValue = "true", matchIfMissing = true)
+public class CoalescenciaConfig {
+
+    @Bean
+    LecturasCompartidas lecturasCompartidas(MeterRegistry registro,
+            @Value("${pedidos.coalescencia.ventana:0ms}") Duration ventana) {
+        return new LecturasCompartidas(registro, ventana);
+    }
+
+    /*
+     * Va por fuera de la transacción, de la caché y de @Timed (orden LOWEST_PRECEDENCE), para que las llamadas
+     * que esperan no tomen conexión y el timer de PedidoService mida solo las ejecuciones; y por dentro de
+     * MetricasConfig.FilasDevueltas, que cuenta las filas de cada petición aunque el resultado sea compartido.
+     */
+    @Aspect
+    @Order(Ordered.LOWEST_PRECEDENCE - 1)
+    static class LecturasCompartidas {
+
+        private record Clave(String metodo, List<Object> argumentos) {
+        }
+
+        private static final class Vuelo {
+
+            private final CompletableFuture<Object> resultado = new CompletableFuture<>();
+
+            // System.nanoTime() hasta el que se reutiliza el resultado; se fija antes de completarlo
+            private volatile long vence;
+
+            boolean vigente() {
+                return !resultado.isDone() || System.nanoTime() - vence < 0;
+            }
+        }
+
+        // Contadores de cada método, registrados en la primera llamada
+        private record Contadores(Counter ejecutada, Counter compartida) {
+        }
+
+        private final ConcurrentHashMap<Clave, Vuelo> vuelos = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, Contadores> contadores = new ConcurrentHashMap<>();
+        private final MeterRegistry registro;
+        private final long ventanaNanos;
+
+        LecturasCompartidas(MeterRegistry registro, Duration ventana) {
+            this.registro = registro;
+            this.ventanaNanos = ventana.toNanos();
+        }
+
+        @Around("@annotation(com.Vineyard.microservicio.config.LecturaCompartida)")
+        public Object compartir(ProceedingJoinPoint llamada) throws Throwable {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                return llamada.proceed();
+            }
+            Clave clave = new Clave(llamada.getSignature().toLongString(), Arrays.asList(llamada.getArgs()));
+            Vuelo propio = new Vuelo();
+            Vuelo vuelo = vuelos.compute(clave, (c, actual) -> actual != null && actual.vigente() ? actual : propio);
+            Contadores contadoresMetodo = contadores.computeIfAbsent(llamada.getSignature().getName(), this::registrar);
+            if (vuelo != propio) {
+                contadoresMetodo.compartida().increment();
+                return esperar(vuelo);
+            }
+
+            contadoresMetodo.ejecutada().increment();
+            Object resultado;
+            try {
+                resultado = llamada.proceed();
+            } catch (Throwable e) {
+                vuelos.remove(clave, propio);
+                propio.resultado.completeExceptionally(e);
+                throw e;
+            }
+            propio.vence = System.nanoTime() + ventanaNanos;
+            propio.resultado.complete(resultado);
+            if (ventanaNanos <= 0) {
+                vuelos.remove(clave, propio);
+            } else {
+                CompletableFuture.delayedExecutor(ventanaNanos, TimeUnit.NANOSECONDS)
+                    .execute(() -> vuelos.remove(clave, propio));
+            }
+            return resultado;
+        }
+
+        private static Object esperar(Vuelo vuelo) throws Throwable {
+            try {
+                return vuelo.resultado.join();
+            } catch (CompletionException e) {
+                throw e.getCause();
+            }
+        }
+
+        private Contadores registrar(String metodo) {
+            return new Contadores(contador(metodo, "ejecutada"), contador(metodo, "compartida"));
+        }
+
+        private Counter contador(String metodo, String resultado) {
+            return Counter.builder("pedidos.coalescencia")
+                .description("Lecturas de PedidoService ejecutadas y compartidas con otra llamada en curso")
+                .tag("method", metodo)
+                .tag("resultado", resultado)
+                .register(registro);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.Vineyard.microservicio.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Limita las conexiones simultáneas a la base con DataSourceLimitado, envolviendo el DataSource de Hikari.
+ * Se activa con pedidos.bd.concurrencia-maxima (lo define el perfil "virtual"); pedidos.bd.espera-conexion
+ * es lo máximo que una petición espera su turno antes de fallar (5 segundos por defecto).
+ * Con el semáforo la espera ocurre antes de llegar a Hikari: se publica junto a las métricas hikaricp.*.
+ */
+@Configuration
+@ConditionalOnProperty(name = "pedidos.bd.concurrencia-maxima")
+public class ConcurrenciaBaseDatosConfig {
+
+    // static: los BeanPostProcessor se crean antes que el resto de los beans de la configuración
+    @Bean
+    static BeanPostProcessor limitarConcurrenciaBaseDatos(Environment entorno) {
+        int permisos = entorno.getRequiredProperty("pedidos.bd.concurrencia-maxima", Integer.class);
+        Duration espera = entorno.getProperty("pedidos.bd.espera-conexion", Duration.class, Duration.ofSeconds(5));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String nombre) {
+                // Solo el DataSource principal; las propiedades spring.datasource.hikari.* ya están aplicadas.
+                if ("dataSource".equals(nombre) && bean instanceof DataSource dataSource
+                        && !(bean instanceof DataSourceLimitado)) {
+                    return new DataSourceLimitado(dataSource, permisos, espera);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Permisos libres y peticiones esperando turno, en /actuator/metrics y /actuator/prometheus
+    @Bean
+    MeterBinder metricasConcurrenciaBaseDatos(DataSource dataSource) {
+        return registro -> {
+            if (dataSource instanceof DataSourceLimitado limitado) {
+                Gauge.builder("pedidos.bd.permisos.disponibles", limitado, DataSourceLimitado::getPermisosDisponibles)
+                    .description("Conexiones que se pueden prestar sin esperar")
+                    .register(registro);
+                Gauge.builder("pedidos.bd.esperando", limitado, DataSourceLimitado::getEsperando)
+                    .description("Peticiones esperando una conexión en el semáforo")
+                    .register(registro);
+            }
+        };
+    }
+}
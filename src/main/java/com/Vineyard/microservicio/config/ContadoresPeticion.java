@@ -0,0 +1,111 @@
+package com.Vineyard.microservicio.config;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.Interceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+import org.springframework.data.domain.Slice;
+
+import com.Vineyard.microservicio.model.PedidoProducto;
+
+/*
+ * Contadores de la petición HTTP en curso, en una variable del hilo: sentencias SQL enviadas, líneas de pedido
+ * (PedidoProducto) cargadas por Hibernate y filas devueltas por PedidoService. MetricasPeticionFilter los inicia
+ * al entrar la petición y los publica al terminar; fuera de una petición (tareas programadas) no se cuenta nada.
+ *
+ * Las respuestas asíncronas (exportación NDJSON) siguen en otro hilo: solo se cuenta lo que ocurre antes.
+ */
+public final class ContadoresPeticion {
+
+    private static final ThreadLocal<ContadoresPeticion> ACTUAL = new ThreadLocal<>();
+
+    private long sentencias;
+    private long lineas;
+    private long filas;
+
+    private ContadoresPeticion() {
+    }
+
+    public static void iniciar() {
+        ACTUAL.set(new ContadoresPeticion());
+    }
+
+    // Quita los contadores del hilo y los devuelve (null si no había una petición en curso)
+    public static ContadoresPeticion terminar() {
+        ContadoresPeticion contadores = ACTUAL.get();
+        ACTUAL.remove();
+        return contadores;
+    }
+
+    public static void sumarFilas(Object resultado) {
+        ContadoresPeticion contadores = ACTUAL.get();
+        if (contadores != null) {
+            contadores.filas += filas(resultado);
+        }
+    }
+
+    public long getSentencias() {
+        return sentencias;
+    }
+
+    public long getLineas() {
+        return lineas;
+    }
+
+    public long getFilas() {
+        return filas;
+    }
+
+     /*
+     * Cantidad de elementos de lo que devuelve un método del servicio: listas, páginas y Optional.
+     * Un Stream se consume después de devolverse y no se cuenta.
+     */
+    private static long filas(Object resultado) {
+        if (resultado == null || resultado instanceof Stream<?>) {
+            return 0;
+        }
+        if (resultado instanceof Collection<?> coleccion) {
+            return coleccion.size();
+        }
+        if (resultado instanceof Map<?, ?> mapa) {
+            return mapa.size();
+        }
+        if (resultado instanceof Slice<?> pagina) {
+            return pagina.getNumberOfElements();
+        }
+        if (resultado instanceof Optional<?> opcional) {
+            return opcional.isPresent() ? 1 : 0;
+        }
+        return 1;
+    }
+
+    // hibernate.session_factory.statement_inspector: cuenta cada sentencia que Hibernate prepara
+    public static class Sentencias implements StatementInspector {
+
+        @Override
+        public String inspect(String sql) {
+            ContadoresPeticion contadores = ACTUAL.get();
+            if (contadores != null) {
+                contadores.sentencias++;
+            }
+            return sql;
+        }
+    }
+
+    // hibernate.session_factory.interceptor: cuenta las líneas de pedido que Hibernate hidrata
+    public static class Lineas implements Interceptor {
+
+        @Override
+        public boolean onLoad(Object entidad, Object id, Object[] estado, String[] propiedades, Type[] tipos) {
+            ContadoresPeticion contadores = ACTUAL.get();
+            if (contadores != null && entidad instanceof PedidoProducto) {
+                contadores.lineas++;
+            }
+            return false;
+        }
+    }
+}
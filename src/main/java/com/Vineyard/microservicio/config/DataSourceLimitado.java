@@ -0,0 +1,113 @@
+package com.Vineyard.microservicio.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/*
+ * DataSource que presta a lo sumo "permisos" conexiones a la vez; el resto espera su turno en orden de llegada.
+ *
+ * Con hilos virtuales la cantidad de peticiones simultáneas ya no la limita el pool de hilos de Tomcat: miles
+ * de hilos pueden pedir conexión a Hikari al mismo tiempo y todos compiten por el mismo puñado de conexiones
+ * hasta agotar connection-timeout. El semáforo (justo) ordena esa espera delante de Hikari y la corta a los
+ * "espera"; con tantos permisos como conexiones en el pool, quien pasa el semáforo encuentra una conexión libre.
+ * El permiso se devuelve al cerrar la conexión.
+ */
+public class DataSourceLimitado extends DelegatingDataSource {
+
+    private final Semaphore permisos;
+    private final Duration espera;
+
+    public DataSourceLimitado(DataSource destino, int permisos, Duration espera) {
+        super(destino);
+        if (permisos <= 0) {
+            throw new IllegalArgumentException("La cantidad de permisos debe ser mayor a cero.");
+        }
+        this.permisos = new Semaphore(permisos, true);
+        this.espera = espera;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        adquirir();
+        try {
+            return liberarAlCerrar(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String usuario, String clave) throws SQLException {
+        adquirir();
+        try {
+            return liberarAlCerrar(super.getConnection(usuario, clave));
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    // Conexiones que se pueden prestar sin esperar
+    public int getPermisosDisponibles() {
+        return permisos.availablePermits();
+    }
+
+    // Hilos esperando un permiso (estimado)
+    public int getEsperando() {
+        return permisos.getQueueLength();
+    }
+
+    private void adquirir() throws SQLException {
+        try {
+            if (!permisos.tryAcquire(espera.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException(
+                    "No se obtuvo una conexión a la base en " + espera.toMillis() + " ms: hay "
+                        + permisos.getQueueLength() + " peticiones esperando.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido mientras esperaba una conexión a la base.", e);
+        }
+    }
+
+    // La conexión devuelta libera el permiso en su primer close(); el resto de los métodos van a la conexión real.
+    private Connection liberarAlCerrar(Connection conexion) {
+        AtomicBoolean cerrada = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(DataSourceLimitado.class.getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, metodo, argumentos) -> {
+                switch (metodo.getName()) {
+                    case "close":
+                        try {
+                            conexion.close();
+                        } finally {
+                            if (cerrada.compareAndSet(false, true)) {
+                                permisos.release();
+                            }
+                        }
+                        return null;
+                    case "equals":
+                        return proxy == argumentos[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        try {
+                            return metodo.invoke(conexion, argumentos);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                }
+            });
+    }
+}
@@ -0,0 +1,37 @@
+package com.Vineyard.microservicio.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/*
+ * Formato binario de los listados para las llamadas entre servicios: con Accept: application/cbor los
+ * endpoints de PedidoController responden CBOR en lugar de HAL JSON.
+ *
+ * En CBOR se omiten los enlaces (los "links" de cada pedido y del listado), que en HAL ocupan más que los datos
+ * del pedido; la paginación se mantiene en "page" y los listados por cursor se recorren con el último id.
+ * Fechas y demás opciones salen del mismo Jackson2ObjectMapperBuilder que el JSON (spring.jackson.*).
+ *
+ * La compresión gzip de las respuestas grandes se configura en application.properties (server.compression.*).
+ */
+@Configuration
+public class FormatosRespuestaConfig {
+
+    // Reemplaza al convertidor CBOR por defecto de Spring MVC
+    @Bean
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder
+            .factory(new CBORFactory())
+            .mixIn(RepresentationModel.class, SinEnlaces.class)
+            .build());
+    }
+
+    @JsonIgnoreProperties("links")
+    abstract static class SinEnlaces {
+    }
+}
@@ -0,0 +1,28 @@
+package com.Vineyard.microservicio.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Perfil "virtual" (spring.threads.virtual.enabled=true): antes de Java 21 Spring Boot ignora la propiedad sin
+ * avisar y todo sigue en hilos de plataforma, con el pool y el semáforo del perfil. Para no confundir ese modo
+ * con el de hilos virtuales, el servicio no inicia. Compilar y ejecutar con Java 21: ./mvnw -Pjava21 ...
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class HilosVirtualesConfig {
+
+    static final int VERSION_MINIMA = 21;
+
+    public HilosVirtualesConfig() {
+        verificar(Runtime.version().feature());
+    }
+
+    static void verificar(int versionJava) {
+        if (versionJava < VERSION_MINIMA) {
+            throw new IllegalStateException("spring.threads.virtual.enabled requiere Java " + VERSION_MINIMA
+                + " o superior y se está ejecutando con Java " + versionJava + ": quitar el perfil \"virtual\" "
+                + "o ejecutar con Java " + VERSION_MINIMA);
+        }
+    }
+}
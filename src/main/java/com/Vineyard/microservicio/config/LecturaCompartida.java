@@ -0,0 +1,17 @@
+package com.Vineyard.microservicio.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Marca una lectura cuyas llamadas simultáneas con los mismos argumentos comparten una sola ejecución
+ * (ver CoalescenciaConfig). Todos los que esperan reciben el mismo objeto: no debe modificarse.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface LecturaCompartida {
+}
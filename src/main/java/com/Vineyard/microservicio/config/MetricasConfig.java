@@ -0,0 +1,71 @@
+package com.Vineyard.microservicio.config;
+
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Métricas para repartir la latencia de cada endpoint (se exponen en /actuator/prometheus):
+ * - http.server.requests: duración total de la petición (Spring MVC).
+ * - pedidos.servicio: duración de cada método de PedidoService (@Timed).
+ * - pedidos.peticion.*: sentencias SQL, líneas de pedido cargadas y filas devueltas (MetricasPeticionFilter).
+ * - hikaricp.connections.acquire: espera de una conexión del pool (Hikari).
+ * Los histogramas de percentiles se activan en application.properties (management.metrics.distribution.*).
+ */
+@Configuration
+public class MetricasConfig {
+
+    // Procesa @Timed en los beans (PedidoService)
+    @Bean
+    TimedAspect timedAspect(MeterRegistry registro) {
+        return new TimedAspect(registro);
+    }
+
+    @Bean
+    FilasDevueltas filasDevueltas() {
+        return new FilasDevueltas();
+    }
+
+     /*
+     * Cuenta sentencias y líneas de pedido con un StatementInspector y un Interceptor de Hibernate.
+     * Si la configuración ya define alguno (por ejemplo una prueba) se respeta el existente.
+     */
+    @Bean
+    HibernatePropertiesCustomizer contarSentenciasYLineas() {
+        return propiedades -> {
+            propiedades.putIfAbsent(AvailableSettings.STATEMENT_INSPECTOR, new ContadoresPeticion.Sentencias());
+            propiedades.putIfAbsent(AvailableSettings.INTERCEPTOR, new ContadoresPeticion.Lineas());
+        };
+    }
+
+    // Solo la API: las peticiones a /actuator no se cuentan
+    @Bean
+    FilterRegistrationBean<MetricasPeticionFilter> metricasPeticionFilter(MeterRegistry registro) {
+        FilterRegistrationBean<MetricasPeticionFilter> registracion =
+            new FilterRegistrationBean<>(new MetricasPeticionFilter(registro));
+        registracion.addUrlPatterns("/api/*");
+        return registracion;
+    }
+
+    // Suma a los contadores de la petición lo que devuelve cada método público de PedidoService
+    // (por fuera de CoalescenciaConfig: también cuenta los resultados compartidos)
+    @Aspect
+    @Order(Ordered.LOWEST_PRECEDENCE - 2)
+    static class FilasDevueltas {
+
+        @AfterReturning(pointcut = "execution(public * com.Vineyard.microservicio.service.PedidoService.*(..))",
+            returning = "resultado")
+        public void contar(Object resultado) {
+            ContadoresPeticion.sumarFilas(resultado);
+        }
+    }
+}
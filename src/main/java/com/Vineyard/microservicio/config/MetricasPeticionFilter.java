@@ -0,0 +1,56 @@
+package com.Vineyard.microservicio.config;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/*
+ * Publica por endpoint (método y patrón de la URI, como http.server.requests) los ContadoresPeticion de cada
+ * petición: pedidos.peticion.sentencias, pedidos.peticion.lineas y pedidos.peticion.filas, con histograma.
+ * Comparados con la duración de la petición permiten ver si el tiempo se va en la base, en hidratar
+ * entidades o en serializar la respuesta.
+ */
+public class MetricasPeticionFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registro;
+
+    public MetricasPeticionFilter(MeterRegistry registro) {
+        this.registro = registro;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContadoresPeticion.iniciar();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ContadoresPeticion contadores = ContadoresPeticion.terminar();
+            // El patrón lo deja Spring MVC al elegir el controlador; sin él (404) no se publica nada
+            Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (contadores != null && uri != null) {
+                registrar("pedidos.peticion.sentencias", "Sentencias SQL por petición", request, uri, contadores.getSentencias());
+                registrar("pedidos.peticion.lineas", "Líneas de pedido cargadas por petición", request, uri, contadores.getLineas());
+                registrar("pedidos.peticion.filas", "Filas devueltas por PedidoService por petición", request, uri, contadores.getFilas());
+            }
+        }
+    }
+
+    private void registrar(String nombre, String descripcion, HttpServletRequest request, Object uri, long valor) {
+        DistributionSummary.builder(nombre)
+            .description(descripcion)
+            .tag("method", request.getMethod())
+            .tag("uri", uri.toString())
+            .publishPercentileHistogram()
+            .register(registro)
+            .record(valor);
+    }
+}
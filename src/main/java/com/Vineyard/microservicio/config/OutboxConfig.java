@@ -0,0 +1,36 @@
+package com.Vineyard.microservicio.config;
+
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.Vineyard.microservicio.event.DestinoEventos;
+import com.Vineyard.microservicio.event.DestinoEventosArchivo;
+import com.Vineyard.microservicio.event.DestinoEventosMemoria;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Destino de los eventos del outbox (ver OutboxPedidos y RelayOutboxPedidos), según pedidos.outbox.destino:
+ * "archivo" (por defecto) agrega NDJSON a pedidos.outbox.archivo y "memoria" los guarda en memoria (pruebas).
+ * Para otro destino (un broker) se define un bean DestinoEventos y pedidos.outbox.destino con otro valor.
+ */
+@Configuration
+@ConditionalOnProperty(name = "pedidos.outbox.habilitado", havingValue = "true")
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "pedidos.outbox.destino", havingValue = "archivo", matchIfMissing = true)
+    DestinoEventos destinoEventosArchivo(@Value("${pedidos.outbox.archivo:pedido-eventos.ndjson}") Path archivo,
+            ObjectMapper objectMapper) {
+        return new DestinoEventosArchivo(archivo, objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "pedidos.outbox.destino", havingValue = "memoria")
+    DestinoEventosMemoria destinoEventosMemoria() {
+        return new DestinoEventosMemoria();
+    }
+}
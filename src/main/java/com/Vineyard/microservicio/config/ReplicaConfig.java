@@ -0,0 +1,92 @@
+package com.Vineyard.microservicio.config;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Envía las transacciones de solo lectura (@Transactional(readOnly = true)) a una réplica de la base.
+ * Se activa con pedidos.replica.url; usuario, clave y driver se toman de spring.datasource.* salvo que se
+ * indiquen en pedidos.replica.username / password, y el pool de la réplica se ajusta con pedidos.replica.hikari.*.
+ *
+ * El DataSource principal elige la base según TransactionSynchronizationManager.isCurrentTransactionReadOnly().
+ * Va detrás de un LazyConnectionDataSourceProxy: Hibernate toca la conexión al iniciar la transacción, antes de
+ * que Spring la registre como de solo lectura, y el proxy demora la conexión física hasta la primera sentencia.
+ * Las lecturas justo después de una escritura pueden no verla si la réplica tiene retraso.
+ */
+@Configuration
+@ConditionalOnProperty(name = "pedidos.replica.url")
+public class ReplicaConfig {
+
+    private static final String PRIMARIA = "primaria";
+    private static final String REPLICA = "replica";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource dataSourcePrimaria(DataSourceProperties propiedades) {
+        return propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("pedidos.replica.hikari")
+    HikariDataSource dataSourceReplica(DataSourceProperties propiedades,
+            @Value("${pedidos.replica.url}") String url,
+            @Value("${pedidos.replica.username:${spring.datasource.username:}}") String usuario,
+            @Value("${pedidos.replica.password:${spring.datasource.password:}}") String clave) {
+        HikariDataSource replica = DataSourceBuilder.create()
+            .type(HikariDataSource.class)
+            .driverClassName(propiedades.determineDriverClassName())
+            .url(url)
+            .username(usuario)
+            .password(clave)
+            .build();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(@Qualifier("dataSourcePrimaria") DataSource primaria,
+            @Qualifier("dataSourceReplica") DataSource replica) {
+        AbstractRoutingDataSource enrutador = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? REPLICA : PRIMARIA;
+            }
+        };
+        enrutador.setTargetDataSources(Map.of(PRIMARIA, primaria, REPLICA, replica));
+        enrutador.setDefaultTargetDataSource(primaria);
+        enrutador.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(enrutador);
+    }
+
+     /*
+     * Con open-in-view Hibernate retiene la conexión hasta el final de la petición: una escritura después de
+     * una lectura en la misma petición usaría la conexión de la réplica. Se libera al terminar cada transacción
+     * para que cada una obtenga la suya.
+     */
+    @Bean
+    HibernatePropertiesCustomizer liberarConexionAlTerminarTransaccion() {
+        return propiedades -> propiedades.put(AvailableSettings.CONNECTION_HANDLING,
+            PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
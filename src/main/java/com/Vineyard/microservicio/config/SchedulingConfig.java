@@ -0,0 +1,11 @@
+package com.Vineyard.microservicio.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Habilita las tareas periódicas (@Scheduled), como la recarga del catálogo de precios.
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+}
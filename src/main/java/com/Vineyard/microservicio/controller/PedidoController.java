@@ -3,54 +3,202 @@ package com.Vineyard.microservicio.controller;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedResourcesAssembler;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import com.Vineyard.microservicio.assemblers.PedidoModelAssembler;
+import com.Vineyard.microservicio.dto.CambioCantidadProducto;
+import com.Vineyard.microservicio.dto.ClienteTop;
+import com.Vineyard.microservicio.dto.PedidoResumen;
+import com.Vineyard.microservicio.dto.PedidosPorId;
+import com.Vineyard.microservicio.dto.ResultadoCargaMasiva;
+import com.Vineyard.microservicio.dto.ResumenVentas;
 import com.Vineyard.microservicio.model.Pedido;
-import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.service.CargaMasivaPedidoService;
+import com.Vineyard.microservicio.service.ClaveIdempotenciaReutilizadaException;
+import com.Vineyard.microservicio.service.DifusionPedidos;
+import com.Vineyard.microservicio.service.IdempotenciaPedidos;
 import com.Vineyard.microservicio.service.PedidoService;
+import com.Vineyard.microservicio.service.ProductoSinPrecioException;
+import com.Vineyard.microservicio.service.VentaDiariaService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/api/v1/pedidos")
 @Tag(name = "Pedidos", description = "Operaciones relacionadas con Pedidos")
 public class PedidoController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    // Parámetro ?view de los listados: summary (PedidoResumen, sin productos) o full (Pedido completo, por defecto)
+    public static final String PARAMETRO_VISTA = "view";
+
+    private enum Vista {
+        RESUMEN, COMPLETA;
+
+        // null si el valor no es summary ni full
+        static Vista de(WebRequest request) {
+            String valor = request.getParameter(PARAMETRO_VISTA);
+            if (valor == null || "full".equalsIgnoreCase(valor)) {
+                return COMPLETA;
+            }
+            return "summary".equalsIgnoreCase(valor) ? RESUMEN : null;
+        }
+    }
+
+    // Encabezados de POST /api/v1/pedidos: clave de idempotencia y marca de respuesta repetida
+    public static final String ENCABEZADO_IDEMPOTENCIA = "Idempotency-Key";
+    public static final String ENCABEZADO_REPETIDA = "Idempotent-Replayed";
+
+    // Versión que ningún pedido tiene: se usa cuando If-Match trae una etiqueta que no es una versión.
+    private static final Long VERSION_INEXISTENTE = -1L;
+
     @Autowired
     private PedidoService pedidoService;
 
     
+    @Autowired
+    private CargaMasivaPedidoService cargaMasivaPedidoService;
+
+    @Autowired
+    private VentaDiariaService ventaDiariaService;
+
     @Autowired
     private PedidoModelAssembler assembler;
 
+    @Autowired
+    private DifusionPedidos difusionPedidos;
+
+    @Autowired
+    private IdempotenciaPedidos idempotenciaPedidos;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Habilita GET /api/v1/pedidos?todos=true, que devuelve la tabla completa sin paginar.
+    @Value("${pedidos.listado.permitir-todos:false}")
+    private boolean permitirListadoCompleto;
+
 //Swagger
 // http://localhost:8080/doc/swagger-ui/index.html
 
-// Obtener todos los pedidos
-// http://localhost:8080/api/v1/pedidos
-    @GetMapping(produces = MediaTypes.HAL_JSON_VALUE)
-    @Operation(summary = "Obtener todos los pedidos", description = "Obtiene una lista de pedidos con enlaces HATEOAS")
+// Obtener todos los pedidos (paginado)
+// http://localhost:8080/api/v1/pedidos?page=0&size=20
+// Paginación por cursor (keyset sobre id):
+// http://localhost:8080/api/v1/pedidos?despues=100&size=20
+// http://localhost:8080/api/v1/pedidos?antes=100&size=20
+// Listado completo sin paginar (requiere pedidos.listado.permitir-todos=true):
+// http://localhost:8080/api/v1/pedidos?todos=true
+// Solo id, cliente, fecha, total y cantidad de líneas, sin cargar productos (vale para todos los listados):
+// http://localhost:8080/api/v1/pedidos?view=summary
+// Entre servicios, con Accept: application/cbor la respuesta es CBOR sin enlaces (vale para todos los listados)
+    @GetMapping(produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    @Operation(summary = "Obtener todos los pedidos", description = "Obtiene una página de pedidos con enlaces HATEOAS, por número de página o por cursor sobre el id")
+    @Parameters({
+        @Parameter(name = "despues", description = "Cursor: devuelve los pedidos con id mayor a este valor"),
+        @Parameter(name = "antes", description = "Cursor: devuelve los pedidos con id menor a este valor"),
+        @Parameter(name = "todos", description = "Devuelve todos los pedidos sin paginar (solo si el servidor lo permite)"),
+        @Parameter(name = PARAMETRO_VISTA, in = ParameterIn.QUERY, description = "summary: pedidos sin productos; full: pedidos completos (por defecto)")
+    })
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Operación exitosa"),
+        @ApiResponse(responseCode = "400", description = "Listado sin paginar no habilitado o vista inválida"),
         @ApiResponse(responseCode = "404", description = "Pedidos no encontrados")
     })
-        public ResponseEntity<CollectionModel<EntityModel<Pedido>>> listarPedidos() {
+        public ResponseEntity<CollectionModel<?>> listarPedidos(
+            @PageableDefault(size = 20) Pageable pageable,
+            @RequestParam(value = "despues", required = false) Long despues,
+            @RequestParam(value = "antes", required = false) Long antes,
+            @RequestParam(value = "todos", required = false) Boolean todos,
+            PagedResourcesAssembler<Pedido> pagedAssembler,
+            WebRequest request) {
+        Vista vista = Vista.de(request);
+        if (vista == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // El listado completo carga toda la tabla en memoria, por eso solo se atiende si el servidor lo habilita.
+        if (Boolean.TRUE.equals(todos)) {
+            if (!permitirListadoCompleto) {
+                return ResponseEntity.badRequest().build();
+            }
+            return listarTodosLosPedidos(vista);
+        }
+
+        if (despues != null || antes != null) {
+            return listarPedidosPorCursor(despues, antes, pageable.getPageSize(), vista);
+        }
+
+        // Paginación por número de página, con enlaces first/prev/next/last.
+        if (vista == Vista.RESUMEN) {
+            Page<PedidoResumen> resumenes = pedidoService.listarResumenes(pageable);
+            if (resumenes.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            return ResponseEntity.ok(PedidoController.<PedidoResumen>paginas(pagedAssembler)
+                .toModel(resumenes, assembler::toResumenModel));
+        }
+        Page<Pedido> pagina = pedidoService.listarPedidos(pageable);
+        if (pagina.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        PagedModel<EntityModel<Pedido>> pagedModel = pagedAssembler.toModel(pagina, assembler);
+        return ResponseEntity.ok(pagedModel);
+        }
+
+    // PagedResourcesAssembler no depende del tipo de contenido: el mismo sirve para pedidos y resúmenes.
+    @SuppressWarnings("unchecked")
+    private static <T> PagedResourcesAssembler<T> paginas(PagedResourcesAssembler<?> pagedAssembler) {
+        return (PagedResourcesAssembler<T>) pagedAssembler;
+    }
+
+    private ResponseEntity<CollectionModel<?>> listarTodosLosPedidos(Vista vista) {
+        if (vista == Vista.RESUMEN) {
+            return resumenes(pedidoService.listarResumenes());
+        }
         // Se invoca pedidoService.listarPedidos() para obtener la lista de pedidos desde la capa de servicio.
         List<Pedido> pedidos = pedidoService.listarPedidos();
 
@@ -66,21 +214,115 @@ public class PedidoController {
             .toList();
         CollectionModel<EntityModel<Pedido>> collectionModel = CollectionModel.of(
             pedidosModel,
-            linkTo(methodOn(PedidoController.class).listarPedidos()).withSelfRel()
+            linkTo(methodOn(PedidoController.class).listarPedidos(null, null, null, true, null, null)).withSelfRel()
         );
 
         return ResponseEntity.ok(collectionModel);
+    }
+
+    private ResponseEntity<CollectionModel<?>> listarPedidosPorCursor(Long despues, Long antes, int tamanio, Vista vista) {
+        if (vista == Vista.RESUMEN) {
+            List<PedidoResumen> resumenes = despues != null
+                ? pedidoService.listarResumenesDespues(despues, tamanio)
+                : pedidoService.listarResumenesAntes(antes, tamanio);
+            return paginaPorCursor(resumenes, PedidoResumen::getId, assembler::toResumenModel, despues, antes, tamanio);
+        }
+        List<Pedido> pedidos = despues != null
+            ? pedidoService.listarPedidosDespues(despues, tamanio)
+            : pedidoService.listarPedidosAntes(antes, tamanio);
+        return paginaPorCursor(pedidos, Pedido::getId, assembler::toModel, despues, antes, tamanio);
+    }
+
+    private static <T> ResponseEntity<CollectionModel<?>> paginaPorCursor(List<T> pedidos, Function<T, Long> id,
+            Function<T, EntityModel<T>> modelo, Long despues, Long antes, int tamanio) {
+        if (pedidos.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        List<EntityModel<T>> pedidosModel = pedidos.stream()
+            .map(modelo)
+            .toList();
+
+        // Los enlaces next/prev llevan como cursor el último y el primer id de la página.
+        // Si la página vino completa puede haber más pedidos en la dirección recorrida.
+        boolean paginaCompleta = pedidos.size() >= Math.min(tamanio, PedidoService.TAMANIO_MAXIMO_PAGINA);
+        Long primerId = id.apply(pedidos.get(0));
+        Long ultimoId = id.apply(pedidos.get(pedidos.size() - 1));
+
+        List<Link> links = new ArrayList<>();
+        links.add(Link.of(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()).withSelfRel());
+        if (despues != null || paginaCompleta) {
+            links.add(Link.of(enlaceCursor("antes", primerId)).withRel(IanaLinkRelations.PREV));
         }
+        if (antes != null || paginaCompleta) {
+            links.add(Link.of(enlaceCursor("despues", ultimoId)).withRel(IanaLinkRelations.NEXT));
+        }
+
+        return ResponseEntity.ok(PagedModel.of(pedidosModel, (PagedModel.PageMetadata) null, links));
+    }
+
+    // Listado de resúmenes; el enlace self es la petición actual, con su ?view=summary
+    private ResponseEntity<CollectionModel<?>> resumenes(List<PedidoResumen> resumenes) {
+        if (resumenes.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        List<EntityModel<PedidoResumen>> resumenesModel = resumenes.stream()
+            .map(assembler::toResumenModel)
+            .toList();
+        return ResponseEntity.ok(CollectionModel.of(resumenesModel,
+            Link.of(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()).withSelfRel()));
+    }
+
+    private static String enlaceCursor(String parametro, Long id) {
+        return ServletUriComponentsBuilder.fromCurrentRequest()
+            .replaceQueryParam("despues")
+            .replaceQueryParam("antes")
+            .replaceQueryParam("page")
+            .replaceQueryParam(parametro, id)
+            .toUriString();
+    }
+
+// Obtener un pedido por id, con ETag (su versión)
+// http://localhost:8080/api/v1/pedidos/1
+// Con el encabezado If-None-Match: "<version>" responde 304 sin cuerpo si el pedido no cambió.
+    @GetMapping(value = "/{id}", produces = MediaTypes.HAL_JSON_VALUE)
+    @Operation(summary = "Obtener un pedido", description = "Obtiene un pedido por ID; el ETag de la respuesta es la versión del pedido")
+    @Parameter(name = "id", description = "ID del pedido", required = true)
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operación exitosa"),
+        @ApiResponse(responseCode = "304", description = "El pedido no cambió desde el ETag indicado en If-None-Match"),
+        @ApiResponse(responseCode = "404", description = "Pedido no encontrado")
+    })
+    public ResponseEntity<EntityModel<Pedido>> obtenerPedido(@PathVariable Long id, WebRequest request) {
+        Pedido pedido;
+        try {
+            pedido = pedidoService.findById(id);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = etag(pedido);
+        // Si el cliente ya tiene esta versión no se arma ni se envía el cuerpo.
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(assembler.toModel(pedido));
+    }
 
 // Obtener pedidos por cliente
 // http://localhost:8080/api/v1/pedidos/cliente/1
-    @GetMapping("/cliente/{clienteId}")
+// http://localhost:8080/api/v1/pedidos/cliente/1?view=summary
+    @GetMapping(value = "/cliente/{clienteId}", produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
     @Operation(summary = "Obtener pedidos por cliente", description = "Obtener los pedidos de un cliente en específico por ID de cliente")
     @Parameter(name = "clienteId", description = "ID del cliente", required = true)
-    public ResponseEntity<CollectionModel<EntityModel<Pedido>>> obtenerPedidosPorCliente(@PathVariable Long clienteId) {
-        if (clienteId == null || clienteId <= 0) {
+    @Parameter(name = PARAMETRO_VISTA, in = ParameterIn.QUERY, description = "summary: pedidos sin productos; full: pedidos completos (por defecto)")
+    public ResponseEntity<CollectionModel<?>> obtenerPedidosPorCliente(@PathVariable Long clienteId, WebRequest request) {
+        Vista vista = Vista.de(request);
+        if (clienteId == null || clienteId <= 0 || vista == null) {
             return ResponseEntity.badRequest().build();
         }
+        if (vista == Vista.RESUMEN) {
+            return resumenes(pedidoService.obtenerResumenesPorCliente(clienteId));
+        }
 
         List<Pedido> pedidos = pedidoService.obtenerPedidosPorCliente(clienteId);
 
@@ -94,7 +336,7 @@ public class PedidoController {
 
         CollectionModel<EntityModel<Pedido>> collectionModel = CollectionModel.of(
             pedidosModel,
-            linkTo(methodOn(PedidoController.class).obtenerPedidosPorCliente(clienteId)).withSelfRel()
+            linkTo(methodOn(PedidoController.class).obtenerPedidosPorCliente(clienteId, null)).withSelfRel()
         );
 
         return ResponseEntity.ok(collectionModel);
@@ -104,11 +346,20 @@ public class PedidoController {
 // Obtener pedidos por fecha exacta
 // http://localhost:8080/api/v1/pedidos/fecha
 // Ve a la pestaña Params y agrega Key: fecha Value: ####
-    @GetMapping("/fecha")
+    @GetMapping(value = "/fecha", produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
     @Operation(summary = "Obtener pedidos por fecha exacta", description = "Obtener pedidos por fecha exacta en formato YYYY-MM-DD")
     @Parameter(name = "fecha", description = "Fecha exacta", required = true)
-    public ResponseEntity<CollectionModel<EntityModel<Pedido>>> obtenerPedidosPorFecha(
-            @RequestParam("fecha") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+    @Parameter(name = PARAMETRO_VISTA, in = ParameterIn.QUERY, description = "summary: pedidos sin productos; full: pedidos completos (por defecto)")
+    public ResponseEntity<CollectionModel<?>> obtenerPedidosPorFecha(
+            @RequestParam("fecha") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha,
+            WebRequest request) {
+        Vista vista = Vista.de(request);
+        if (vista == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (vista == Vista.RESUMEN) {
+            return resumenes(pedidoService.obtenerResumenesPorFecha(fecha));
+        }
         List<Pedido> pedidos = pedidoService.obtenerPedidosPorFecha(fecha);
         if (pedidos.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
@@ -118,7 +369,7 @@ public class PedidoController {
             .toList();
         CollectionModel<EntityModel<Pedido>> collectionModel = CollectionModel.of(
             pedidosModel,
-            linkTo(methodOn(PedidoController.class).obtenerPedidosPorFecha(fecha)).withSelfRel()
+            linkTo(methodOn(PedidoController.class).obtenerPedidosPorFecha(fecha, null)).withSelfRel()
         );
         return ResponseEntity.ok(collectionModel);
     }
@@ -127,15 +378,24 @@ public class PedidoController {
 // http://localhost:8080/api/v1/pedidos/rango-fechas
 // Key: desde → Value: ####
 // Key: hasta → Value: ####
-    @GetMapping("/rango-fechas")
+    @GetMapping(value = "/rango-fechas", produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
     @Operation(summary = "Obtener pedidos entre fechas exactas", description = "Obtener pedidos entre las fechas dadas")
     @Parameters({
         @Parameter(name = "desde", description = "Fecha desde (YYYY-MM-DD)", required = true),
-        @Parameter(name = "hasta", description = "Fecha hasta (YYYY-MM-DD)", required = true)
+        @Parameter(name = "hasta", description = "Fecha hasta (YYYY-MM-DD)", required = true),
+        @Parameter(name = PARAMETRO_VISTA, in = ParameterIn.QUERY, description = "summary: pedidos sin productos; full: pedidos completos (por defecto)")
     })
-    public ResponseEntity<CollectionModel<EntityModel<Pedido>>> obtenerPedidosEntreFechas(
+    public ResponseEntity<CollectionModel<?>> obtenerPedidosEntreFechas(
             @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
-            @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+            @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            WebRequest request) {
+        Vista vista = Vista.de(request);
+        if (vista == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (vista == Vista.RESUMEN) {
+            return resumenes(pedidoService.obtenerResumenesEntreFechas(desde, hasta));
+        }
         List<Pedido> pedidos = pedidoService.obtenerPedidosEntreFechas(desde, hasta);
         if (pedidos.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
@@ -145,11 +405,130 @@ public class PedidoController {
             .toList();
         CollectionModel<EntityModel<Pedido>> collectionModel = CollectionModel.of(
             pedidosModel,
-            linkTo(methodOn(PedidoController.class).obtenerPedidosEntreFechas(desde, hasta)).withSelfRel()
+            linkTo(methodOn(PedidoController.class).obtenerPedidosEntreFechas(desde, hasta, null)).withSelfRel()
         );
         return ResponseEntity.ok(collectionModel);
     }
 
+// Exportar pedidos entre fechas en formato NDJSON (un pedido por línea)
+// http://localhost:8080/api/v1/pedidos/rango-fechas/exportar?desde=####&hasta=####
+// La respuesta se escribe a medida que se leen los pedidos, sin armar la lista completa en memoria.
+    @GetMapping(value = "/rango-fechas/exportar", produces = APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Exportar pedidos entre fechas", description = "Devuelve los pedidos entre las fechas dadas como NDJSON, en orden de id")
+    @Parameters({
+        @Parameter(name = "desde", description = "Fecha desde (YYYY-MM-DD)", required = true),
+        @Parameter(name = "hasta", description = "Fecha hasta (YYYY-MM-DD)", required = true)
+    })
+    public ResponseEntity<StreamingResponseBody> exportarPedidosEntreFechas(
+            @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody cuerpo = salida -> {
+            try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+                generador.setRootValueSeparator(null);
+                pedidoService.exportarPedidosEntreFechas(desde, hasta, lote -> {
+                    try {
+                        for (Pedido pedido : lote) {
+                            writer.writeValue(generador, pedido);
+                            generador.writeRaw('\n');
+                        }
+                        // Se envía cada lote apenas está listo para que el cliente reciba datos desde el inicio.
+                        generador.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+            .body(cuerpo);
+    }
+
+// Ventas por día entre fechas, desde el resumen precalculado (una fila por día, no por pedido)
+// http://localhost:8080/api/v1/pedidos/ventas-diarias?desde=####&hasta=####
+// De un solo cliente: agregar &clienteId=1
+    @GetMapping("/ventas-diarias")
+    @Operation(summary = "Ventas diarias", description = "Cantidad de pedidos, unidades e ingresos por día entre las fechas dadas, opcionalmente de un cliente")
+    @Parameters({
+        @Parameter(name = "desde", description = "Fecha desde (YYYY-MM-DD)", required = true),
+        @Parameter(name = "hasta", description = "Fecha hasta (YYYY-MM-DD)", required = true),
+        @Parameter(name = "clienteId", description = "ID del cliente")
+    })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operación exitosa",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = ResumenVentas.class))),
+        @ApiResponse(responseCode = "400", description = "Rango de fechas inválido")
+    })
+    public ResponseEntity<ResumenVentas> obtenerVentasDiarias(
+            @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(value = "clienteId", required = false) Long clienteId) {
+        if (desde.isAfter(hasta)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(ventaDiariaService.consultar(desde, hasta, clienteId));
+    }
+
+// Clientes con más pedidos (o más ingresos) entre fechas, desde el resumen precalculado
+// http://localhost:8080/api/v1/pedidos/clientes/top?desde=####&hasta=####&k=10
+// Por ingresos: agregar &por=ingresos. Si desde y hasta son hoy, se responde desde memoria.
+    @GetMapping("/clientes/top")
+    @Operation(summary = "Top de clientes", description = "Los k clientes con más pedidos o ingresos entre las fechas dadas, del primero al último")
+    @Parameters({
+        @Parameter(name = "desde", description = "Fecha desde (YYYY-MM-DD)", required = true),
+        @Parameter(name = "hasta", description = "Fecha hasta (YYYY-MM-DD)", required = true),
+        @Parameter(name = "k", description = "Cantidad de clientes (1 a 100, 10 por defecto)"),
+        @Parameter(name = "por", description = "pedidos (por defecto) o ingresos")
+    })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operación exitosa"),
+        @ApiResponse(responseCode = "400", description = "Rango de fechas, k o criterio inválido")
+    })
+    public ResponseEntity<List<ClienteTop>> obtenerTopClientes(
+            @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(value = "k", defaultValue = "10") int k,
+            @RequestParam(value = "por", defaultValue = "pedidos") String por) {
+        VentaDiariaService.Criterio criterio;
+        if ("pedidos".equalsIgnoreCase(por)) {
+            criterio = VentaDiariaService.Criterio.PEDIDOS;
+        } else if ("ingresos".equalsIgnoreCase(por)) {
+            criterio = VentaDiariaService.Criterio.INGRESOS;
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+        if (desde.isAfter(hasta) || k < 1 || k > VentaDiariaService.MAXIMO_TOP) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(ventaDiariaService.topClientes(desde, hasta, k, criterio));
+    }
+
+// Recalcular el resumen de ventas desde los pedidos (carga inicial del histórico o corrección)
+// http://localhost:8080/api/v1/pedidos/ventas-diarias/reconstruir?desde=####&hasta=####
+    @PostMapping("/ventas-diarias/reconstruir")
+    @Operation(summary = "Reconstruir ventas diarias", description = "Recalcula el resumen de ventas entre las fechas dadas a partir de los pedidos")
+    @Parameters({
+        @Parameter(name = "desde", description = "Fecha desde (YYYY-MM-DD)", required = true),
+        @Parameter(name = "hasta", description = "Fecha hasta (YYYY-MM-DD)", required = true)
+    })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Resumen recalculado"),
+        @ApiResponse(responseCode = "400", description = "Rango de fechas inválido")
+    })
+    public ResponseEntity<Void> reconstruirVentasDiarias(
+            @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        if (desde.isAfter(hasta)) {
+            return ResponseEntity.badRequest().build();
+        }
+        ventaDiariaService.reconstruir(desde, hasta);
+        return ResponseEntity.noContent().build();
+    }
+
     // Contar pedidos por cliente
     // http://localhost:8080/api/v1/pedidos/cliente/1/cantidad
     @GetMapping("/cliente/{clienteId}/cantidad")
@@ -168,10 +547,53 @@ public class PedidoController {
     }
 
 
-// Obtener los últimos 10 pedidos
+// Obtener varios pedidos en una sola llamada
+// http://localhost:8080/api/v1/pedidos/batch-get
+// Body: [1, 2, 3] (hasta 1000 ids). Los ids que no existen se informan en noEncontrados.
+// Con Accept: application/cbor la respuesta es CBOR, igual que los listados
+    @PostMapping(value = "/batch-get", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    @Operation(summary = "Obtener pedidos por lista de ids", description = "Devuelve los pedidos de la lista por id, consultando la base por bloques")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operación exitosa",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = PedidosPorId.class))),
+        @ApiResponse(responseCode = "400", description = "Lista vacía, demasiado grande o con ids nulos")
+    })
+    public ResponseEntity<PedidosPorId> obtenerPedidosPorIds(@RequestBody List<Long> ids) {
+        if (!listaDeIdsValida(ids)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<Long, Pedido> pedidos = pedidoService.buscarPorIds(ids);
+        List<Long> noEncontrados = ids.stream().distinct().filter(id -> !pedidos.containsKey(id)).toList();
+        return ResponseEntity.ok(new PedidosPorId(pedidos, noEncontrados));
+    }
+
+// Contar pedidos de varios clientes en una sola llamada
+// http://localhost:8080/api/v1/pedidos/cliente/cantidades
+// Body: [1, 2, 3] (hasta 1000 ids). Respuesta: { "1": 4, "2": 0, "3": 1 } (0 si el cliente no tiene pedidos)
+    @PostMapping("/cliente/cantidades")
+    @Operation(summary = "Contar pedidos de varios clientes", description = "Cuenta los pedidos de cada cliente de la lista con un solo GROUP BY por bloque")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operación exitosa"),
+        @ApiResponse(responseCode = "400", description = "Lista vacía, demasiado grande o con ids nulos")
+    })
+    public ResponseEntity<Map<Long, Long>> contarPedidosPorClientes(@RequestBody List<Long> clienteIds) {
+        if (!listaDeIdsValida(clienteIds)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(pedidoService.contarPedidosPorClientes(clienteIds));
+    }
+
+    private static boolean listaDeIdsValida(List<Long> ids) {
+        return ids != null && !ids.isEmpty() && ids.size() <= PedidoService.MAXIMO_IDS_CONSULTA
+            && ids.stream().allMatch(Objects::nonNull);
+    }
+
+
+// Obtener los últimos pedidos (pedidos.ultimos.cantidad, 10 por defecto)
 // http://localhost:8080/api/v1/pedidos/ultimos
-    @GetMapping(value = "/ultimos", produces = MediaTypes.HAL_JSON_VALUE)
-    @Operation(summary = "Últimos 10 pedidos", description = "Lee los últimos 10 pedidos y los retorna con enlaces HATEOAS")
+    @GetMapping(value = "/ultimos", produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    @Operation(summary = "Últimos pedidos", description = "Lee los últimos pedidos (10 por defecto) desde memoria y los retorna con enlaces HATEOAS")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Operación exitosa"),
         @ApiResponse(responseCode = "404", description = "No se encontraron pedidos")
@@ -184,10 +606,27 @@ public class PedidoController {
         CollectionModel<EntityModel<Pedido>> collectionModel = CollectionModel.of(
             pedidosModel,
             linkTo(methodOn(PedidoController.class).obtenerUltimosPedidos()).withSelfRel(),
-            linkTo(methodOn(PedidoController.class).listarPedidos()).withRel("todos")
+            linkTo(methodOn(PedidoController.class).listarPedidos(null, null, null, null, null, null)).withRel("todos")
         );
         return ResponseEntity.ok(collectionModel);
     }
+
+// Recibir los pedidos a medida que se guardan (Server-Sent Events), en lugar de consultar /ultimos periódicamente
+// http://localhost:8080/api/v1/pedidos/stream
+// Eventos: "pedido" (creado o modificado), "eliminado" ({"id": ...}) y "perdidos" (el cliente no leyó a tiempo; releer /ultimos).
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Flujo de pedidos", description = "Mantiene la conexión abierta y envía cada pedido guardado o eliminado como evento SSE")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Suscripción abierta"),
+        @ApiResponse(responseCode = "503", description = "Se alcanzó el máximo de suscriptores")
+    })
+    public ResponseEntity<SseEmitter> suscribirPedidos(HttpServletResponse response) {
+        return difusionPedidos.suscribir(response)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .build());
+    }
 /*
  * {
   "clienteId": 2,
@@ -203,9 +642,12 @@ public class PedidoController {
   ]
 }
  */
+// Con el encabezado Idempotency-Key: <clave>, los reintentos con la misma clave devuelven el pedido ya creado
+// (encabezado Idempotent-Replayed: true); la misma clave con otro pedido responde 422.
 
     @PostMapping
     @Operation(summary = "Hacer un pedido", description = "Recibe el json y registra el pedido en la base de datos")
+    @Parameter(name = ENCABEZADO_IDEMPOTENCIA, in = ParameterIn.HEADER, description = "Clave para reintentar sin duplicar el pedido (opcional)")
     @ApiResponses(value = {@ApiResponse
         (responseCode = "200", description = "Pedido creado",  
         content = @Content(mediaType = "application/json", 
@@ -213,45 +655,119 @@ public class PedidoController {
         @ApiResponse
         (responseCode = "404", description = "No se a creado el pedido",  
         content = @Content(mediaType = "application/json", 
-        schema = @Schema(implementation = Pedido.class)))}) 
+        schema = @Schema(implementation = Pedido.class))),
+        @ApiResponse(responseCode = "422", description = "La Idempotency-Key ya se usó con otro pedido")}) 
 
-    public ResponseEntity<?> crearPedido(@RequestBody Pedido pedido, BindingResult result) {
+    public ResponseEntity<?> crearPedido(@RequestBody Pedido pedido, BindingResult result,
+            @RequestHeader(value = ENCABEZADO_IDEMPOTENCIA, required = false) String claveIdempotencia) {
         if (result.hasErrors()) {
             return ResponseEntity.badRequest().body("Datos del pedido inválidos.");
         }
+        if (claveIdempotencia != null
+                && (claveIdempotencia.isBlank() || claveIdempotencia.length() > IdempotenciaPedidos.LARGO_MAXIMO_CLAVE)) {
+            return ResponseEntity.badRequest().body("Idempotency-Key inválida.");
+        }
 
-        Pedido nuevoPedido = pedidoService.guardarOActualizarPedido(pedido);
-        return ResponseEntity.status(HttpStatus.CREATED).body(nuevoPedido);
+        try {
+            if (claveIdempotencia != null) {
+                // Un reintento con la misma clave recibe la respuesta original sin crear otro pedido
+                IdempotenciaPedidos.Respuesta respuesta = idempotenciaPedidos.crear(claveIdempotencia, pedido);
+                ResponseEntity.BodyBuilder creado = ResponseEntity.status(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON);
+                if (respuesta.repetida()) {
+                    creado.header(ENCABEZADO_REPETIDA, "true");
+                }
+                return creado.body(respuesta.cuerpo());
+            }
+            Pedido nuevoPedido = pedidoService.guardarOActualizarPedido(pedido);
+            return ResponseEntity.status(HttpStatus.CREATED).body(nuevoPedido);
+        } catch (ProductoSinPrecioException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ClaveIdempotenciaReutilizadaException e) {
+            return ResponseEntity.unprocessableEntity().body(e.getMessage());
+        }
     }
     
 
 
+// Carga masiva de pedidos
+// http://localhost:8080/api/v1/pedidos/bulk
+// Body: lista de pedidos con el mismo formato que POST /api/v1/pedidos
+    @PostMapping("/bulk")
+    @Operation(summary = "Carga masiva de pedidos", description = "Registra hasta 10.000 pedidos por llamada e informa el resultado de cada uno")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Todos los pedidos fueron creados",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = ResultadoCargaMasiva.class))),
+        @ApiResponse(responseCode = "207", description = "Algunos pedidos fueron rechazados",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = ResultadoCargaMasiva.class))),
+        @ApiResponse(responseCode = "400", description = "Lista vacía o demasiado grande")})
+    public ResponseEntity<ResultadoCargaMasiva> crearPedidosMasivo(@RequestBody List<Pedido> pedidos) {
+        if (pedidos == null || pedidos.isEmpty() || pedidos.size() > CargaMasivaPedidoService.TAMANIO_MAXIMO_CARGA) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResultadoCargaMasiva resultado = cargaMasivaPedidoService.cargarPedidos(pedidos);
+        HttpStatus estado = resultado.getFallidos() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(estado).body(resultado);
+    }
+
+// Modificar un pedido
+// http://localhost:8080/api/v1/pedidos/1
+// Con el encabezado If-Match: "<version>" solo se modifica si nadie lo cambió desde esa versión (si no, 412).
     @PutMapping("/{id}")
-    @Operation(summary = "Modificar pedido", description = "Busca un pedido por ID y lo modifica")
+    @Operation(summary = "Modificar pedido", description = "Busca un pedido por ID y lo modifica; solo se escriben los productos que cambian")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Operación exitosa"),
-        @ApiResponse(responseCode = "404", description = "Pedido no encontrado")
+        @ApiResponse(responseCode = "400", description = "Productos inválidos o sin precio"),
+        @ApiResponse(responseCode = "404", description = "Pedido no encontrado"),
+        @ApiResponse(responseCode = "412", description = "El pedido cambió desde la versión indicada en If-Match")
     })
-    public ResponseEntity<Pedido> actualizar(@PathVariable Long id, @RequestBody Pedido pedido) {
+    public ResponseEntity<Pedido> actualizar(@PathVariable Long id, @RequestBody Pedido pedido,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Pedido ped = pedidoService.findById(id);
-
-            ped.setId(id);
-            ped.setClienteId(pedido.getClienteId());
-            ped.setFecha(pedido.getFecha());
-            ped.setTotal(pedido.getTotal());
-
-            // Limpia productos anteriores y asigna los nuevos
-            ped.getProductos().clear();
-            for (PedidoProducto producto : pedido.getProductos()) {
-                producto.setPedido(ped); // Relación bidireccional
-                ped.getProductos().add(producto);
-            }
+            Pedido ped = pedidoService.actualizarPedido(id, pedido, versionIfMatch(ifMatch));
+            return ResponseEntity.ok().eTag(etag(ped)).body(ped);
+        } catch (ProductoSinPrecioException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+    }
 
-            pedidoService.save(ped);
-            return ResponseEntity.ok(ped);
-        } catch (Exception e) {
+// Modificar la cantidad de un solo producto del pedido (0 lo quita)
+// http://localhost:8080/api/v1/pedidos/1/productos/8
+// Body: { "cantidad": 3 }
+// Admite If-Match igual que PUT.
+    @PatchMapping("/{id}/productos/{productoId}")
+    @Operation(summary = "Modificar un producto del pedido", description = "Cambia la cantidad de un producto del pedido, lo agrega si no estaba o lo quita con cantidad 0")
+    @Parameters({
+        @Parameter(name = "id", description = "ID del pedido", required = true),
+        @Parameter(name = "productoId", description = "ID del producto", required = true)
+    })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operación exitosa"),
+        @ApiResponse(responseCode = "400", description = "Cantidad inválida o producto sin precio"),
+        @ApiResponse(responseCode = "404", description = "Pedido no encontrado"),
+        @ApiResponse(responseCode = "412", description = "El pedido cambió desde la versión indicada en If-Match")
+    })
+    public ResponseEntity<Pedido> actualizarProducto(@PathVariable Long id, @PathVariable Long productoId,
+            @RequestBody CambioCantidadProducto cambio,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (cambio.getCantidad() == null || cambio.getCantidad() < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            Pedido ped = pedidoService.actualizarProductoPedido(id, productoId, cambio.getCantidad(), versionIfMatch(ifMatch));
+            return ResponseEntity.ok().eTag(etag(ped)).body(ped);
+        } catch (ProductoSinPrecioException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (EntityNotFoundException e) {
             return ResponseEntity.notFound().build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         }
     }
 
@@ -266,9 +782,42 @@ public class PedidoController {
         content = @Content(mediaType = "application/json", 
         schema = @Schema(implementation = Pedido.class)))})
 
-        public ResponseEntity<Void> eliminarPedido(@PathVariable Long id) {
-            pedidoService.eliminarPedido(id);
+        public ResponseEntity<Void> eliminarPedido(@PathVariable Long id,
+                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+            try {
+                pedidoService.eliminarPedido(id, versionIfMatch(ifMatch));
+            } catch (OptimisticLockingFailureException e) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
                 return ResponseEntity.noContent().build();
     }
 
+    // ETag de un pedido: su versión entre comillas.
+    private static String etag(Pedido pedido) {
+        return "\"" + pedido.getVersion() + "\"";
+    }
+
+    /*
+     * Versión indicada en If-Match, o null si no hay encabezado o es "*" (cualquier versión).
+     * Se admite una sola etiqueta; una etiqueta que no es una versión de pedido nunca coincide, tampoco una
+     * etiqueta débil (W/"n"): If-Match compara en forma fuerte (RFC 9110, 13.1.1).
+     */
+    private static Long versionIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String etiqueta = ifMatch.trim();
+        if (etiqueta.startsWith("W/")) {
+            return VERSION_INEXISTENTE;
+        }
+        if (etiqueta.length() >= 2 && etiqueta.startsWith("\"") && etiqueta.endsWith("\"")) {
+            etiqueta = etiqueta.substring(1, etiqueta.length() - 1);
+        }
+        try {
+            return Long.valueOf(etiqueta);
+        } catch (NumberFormatException e) {
+            return VERSION_INEXISTENTE;
+        }
+    }
+
 }
\ No newline at end of file
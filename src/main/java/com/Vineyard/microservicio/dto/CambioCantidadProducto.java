@@ -0,0 +1,16 @@
+package com.Vineyard.microservicio.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Nueva cantidad de un producto dentro de un pedido")
+public class CambioCantidadProducto {
+
+    @Schema(description = "Cantidad del producto; 0 lo quita del pedido")
+    private Integer cantidad;
+}
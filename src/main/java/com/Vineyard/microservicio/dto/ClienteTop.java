@@ -0,0 +1,25 @@
+package com.Vineyard.microservicio.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Ventas de un cliente en un rango de fechas")
+public class ClienteTop {
+
+    @Schema(description = "ID del cliente")
+    private Long clienteId;
+
+    @Schema(description = "Cantidad de pedidos en el rango")
+    private long pedidos;
+
+    @Schema(description = "Unidades vendidas en el rango")
+    private long unidades;
+
+    @Schema(description = "Suma de los totales en el rango")
+    private double ingresos;
+}
@@ -0,0 +1,39 @@
+package com.Vineyard.microservicio.dto;
+
+import java.time.LocalDate;
+
+import org.springframework.hateoas.server.core.Relation;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Pedido sin sus productos, para los listados con ?view=summary.
+ * PedidoRepository lo arma con una expresión "select new": no se cargan entidades ni líneas,
+ * y Hibernate no guarda copias para dirty checking.
+ * En HAL se publica con las mismas relaciones que Pedido (_embedded.pedidoList).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Relation(itemRelation = "pedido", collectionRelation = "pedidoList")
+@Schema(description = "Resumen de un pedido, sin sus productos")
+public class PedidoResumen {
+
+    @Schema(description = "Identificador de pedido")
+    private Long id;
+
+    @Schema(description = "Identificador de cliente")
+    private Long clienteId;
+
+    @Schema(description = "fecha del pedido")
+    private LocalDate fecha;
+
+    @Schema(description = "Total del pedido")
+    private double total;
+
+    @Schema(description = "Cantidad de productos distintos del pedido")
+    private int lineas;
+}
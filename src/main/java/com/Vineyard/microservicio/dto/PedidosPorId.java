@@ -0,0 +1,24 @@
+package com.Vineyard.microservicio.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import com.Vineyard.microservicio.model.Pedido;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Pedidos pedidos por lista de ids")
+public class PedidosPorId {
+
+    @Schema(description = "Pedidos encontrados, por id, en el orden en que se pidieron")
+    private Map<Long, Pedido> pedidos;
+
+    @Schema(description = "Ids pedidos que no existen")
+    private List<Long> noEncontrados;
+}
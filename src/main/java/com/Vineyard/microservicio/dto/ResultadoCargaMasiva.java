@@ -0,0 +1,27 @@
+package com.Vineyard.microservicio.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Resumen de una carga masiva de pedidos")
+public class ResultadoCargaMasiva {
+
+    @Schema(description = "Cantidad de pedidos recibidos")
+    private int recibidos;
+
+    @Schema(description = "Cantidad de pedidos creados")
+    private int creados;
+
+    @Schema(description = "Cantidad de pedidos rechazados")
+    private int fallidos;
+
+    @Schema(description = "Resultado de cada pedido, en el mismo orden en que se recibieron")
+    private List<ResultadoItemCarga> resultados;
+}
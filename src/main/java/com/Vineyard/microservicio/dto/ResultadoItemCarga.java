@@ -0,0 +1,33 @@
+package com.Vineyard.microservicio.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Resultado de un pedido dentro de una carga masiva")
+public class ResultadoItemCarga {
+
+    @Schema(description = "Posición del pedido en la lista recibida")
+    private int indice;
+
+    @Schema(description = "Identificador asignado, si el pedido fue creado")
+    private Long id;
+
+    @Schema(description = "Indica si el pedido fue creado")
+    private boolean creado;
+
+    @Schema(description = "Motivo del rechazo, si el pedido no fue creado")
+    private String error;
+
+    public static ResultadoItemCarga creado(int indice, Long id) {
+        return new ResultadoItemCarga(indice, id, true, null);
+    }
+
+    public static ResultadoItemCarga fallido(int indice, String error) {
+        return new ResultadoItemCarga(indice, null, false, error);
+    }
+}
@@ -0,0 +1,37 @@
+package com.Vineyard.microservicio.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Ventas de un rango de fechas, por día y en total")
+public class ResumenVentas {
+
+    @Schema(description = "Fecha desde")
+    private LocalDate desde;
+
+    @Schema(description = "Fecha hasta")
+    private LocalDate hasta;
+
+    @Schema(description = "Cliente, si el resumen es de un solo cliente")
+    private Long clienteId;
+
+    @Schema(description = "Cantidad de pedidos en el rango")
+    private long pedidos;
+
+    @Schema(description = "Unidades vendidas en el rango")
+    private long unidades;
+
+    @Schema(description = "Suma de los totales en el rango")
+    private double ingresos;
+
+    @Schema(description = "Días del rango con ventas, en orden de fecha")
+    private List<VentaDia> dias;
+}
@@ -0,0 +1,27 @@
+package com.Vineyard.microservicio.dto;
+
+import java.time.LocalDate;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Ventas de un día")
+public class VentaDia {
+
+    @Schema(description = "Día")
+    private LocalDate fecha;
+
+    @Schema(description = "Cantidad de pedidos")
+    private long pedidos;
+
+    @Schema(description = "Unidades vendidas")
+    private long unidades;
+
+    @Schema(description = "Suma de los totales de los pedidos")
+    private double ingresos;
+}
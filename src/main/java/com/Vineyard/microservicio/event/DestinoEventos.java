@@ -0,0 +1,13 @@
+package com.Vineyard.microservicio.event;
+
+import java.util.List;
+
+/*
+ * Adónde envía RelayOutboxPedidos los eventos del outbox (un broker, otro servicio, un archivo).
+ * Recibe los eventos de un lote en orden de id. Si lanza una excepción el lote queda en el outbox y se
+ * reintenta en la próxima pasada, así que un mismo evento puede llegar más de una vez.
+ */
+public interface DestinoEventos {
+
+    void publicar(List<EventoPedido> eventos) throws Exception;
+}
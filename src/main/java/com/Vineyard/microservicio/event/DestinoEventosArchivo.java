@@ -0,0 +1,46 @@
+package com.Vineyard.microservicio.event;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Agrega los eventos a un archivo NDJSON, un evento por línea (pedidos.outbox.destino=archivo).
+ * Cada lote se escribe y se fuerza a disco antes de volver, para que el relay pueda borrarlo del outbox.
+ */
+public class DestinoEventosArchivo implements DestinoEventos {
+
+    private final Path archivo;
+    private final ObjectMapper objectMapper;
+
+    public DestinoEventosArchivo(Path archivo, ObjectMapper objectMapper) {
+        this.archivo = archivo;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publicar(List<EventoPedido> eventos) throws IOException {
+        StringBuilder lineas = new StringBuilder();
+        for (EventoPedido evento : eventos) {
+            lineas.append(objectMapper.writeValueAsString(evento)).append('\n');
+        }
+        try (FileChannel canal = FileChannel.open(archivo,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer contenido = ByteBuffer.wrap(lineas.toString().getBytes(StandardCharsets.UTF_8));
+            while (contenido.hasRemaining()) {
+                canal.write(contenido);
+            }
+            canal.force(true);
+        }
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+}
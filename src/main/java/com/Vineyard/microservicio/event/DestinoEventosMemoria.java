@@ -0,0 +1,23 @@
+package com.Vineyard.microservicio.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Guarda los eventos en memoria (pedidos.outbox.destino=memoria); pensado para pruebas.
+public class DestinoEventosMemoria implements DestinoEventos {
+
+    private final List<EventoPedido> eventos = new ArrayList<>();
+
+    @Override
+    public synchronized void publicar(List<EventoPedido> lote) {
+        eventos.addAll(lote);
+    }
+
+    public synchronized List<EventoPedido> getEventos() {
+        return List.copyOf(eventos);
+    }
+
+    public synchronized void limpiar() {
+        eventos.clear();
+    }
+}
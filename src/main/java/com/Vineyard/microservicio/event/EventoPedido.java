@@ -0,0 +1,18 @@
+package com.Vineyard.microservicio.event;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+/*
+ * Fila del outbox (tabla pedido_evento) tal como se entrega a un DestinoEventos.
+ * id: creciente y único; los consumidores lo usan para descartar repetidos (la entrega es al menos una vez).
+ * datos: JSON del pedido (CREADO, ACTUALIZADO) o de su estado al eliminarlo (ELIMINADO).
+ */
+public record EventoPedido(long id, Tipo tipo, Long pedidoId, Long clienteId, Instant registrado,
+        @JsonRawValue String datos) {
+
+    public enum Tipo {
+        CREADO, ACTUALIZADO, ELIMINADO
+    }
+}
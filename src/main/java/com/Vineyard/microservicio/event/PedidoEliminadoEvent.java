@@ -0,0 +1,14 @@
+package com.Vineyard.microservicio.event;
+
+import com.Vineyard.microservicio.model.EstadoPedido;
+
+/*
+ * Se publica desde PedidoService cada vez que se elimina un pedido, dentro de la transacción que lo borra.
+ * eliminado: cliente, fecha, total y unidades del pedido borrado.
+ */
+public record PedidoEliminadoEvent(Long id, EstadoPedido eliminado) {
+
+    public Long clienteId() {
+        return eliminado != null ? eliminado.clienteId() : null;
+    }
+}
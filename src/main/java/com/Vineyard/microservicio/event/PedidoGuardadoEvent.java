@@ -0,0 +1,17 @@
+package com.Vineyard.microservicio.event;
+
+import com.Vineyard.microservicio.model.EstadoPedido;
+import com.Vineyard.microservicio.model.Pedido;
+
+/*
+ * Se publica desde PedidoService (y la carga masiva) cada vez que se crea o modifica un pedido,
+ * dentro de la transacción que lo guarda.
+ * anterior: cliente, fecha, total y unidades del pedido antes de la modificación (null si es nuevo).
+ */
+public record PedidoGuardadoEvent(Pedido pedido, EstadoPedido anterior) {
+
+    // Cliente que tenía el pedido antes de la modificación (null si es nuevo).
+    public Long clienteIdAnterior() {
+        return anterior != null ? anterior.clienteId() : null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.Vineyard.microservicio.model;
+
+import java.time.LocalDate;
+
+/*
+ * Valores de un pedido que alimentan el resumen de ventas diarias: cliente, fecha, total y unidades
+ * (suma de las cantidades de sus productos). Se toma antes de modificar o eliminar un pedido
+ * para descontar lo que aportaba al resumen.
+ */
+public record EstadoPedido(Long clienteId, LocalDate fecha, double total, long unidades) {
+
+    public static EstadoPedido de(Pedido pedido) {
+        long unidades = 0;
+        for (PedidoProducto producto : pedido.getProductos()) {
+            if (producto.getCantidad() != null) {
+                unidades += producto.getCantidad();
+            }
+        }
+        return new EstadoPedido(pedido.getClienteId(), pedido.getFecha(), pedido.getTotal(), unidades);
+    }
+}
@@ -4,6 +4,11 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.Vineyard.microservicio.config.CacheConfig;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -18,9 +23,17 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Schema(description = "Entidad que representa un pedido")
+// Caché de segundo nivel (ver CacheConfig): el pedido guardado reemplaza la entrada al confirmar la transacción
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.REGION_PEDIDO)
 public class Pedido {
+    /*
+     * El id se toma de la secuencia pedido_seq en bloques de 50 (optimizador pooled):
+     * Hibernate conoce el id antes del INSERT y puede agrupar los INSERT en lotes JDBC,
+     * cosa que GenerationType.IDENTITY impide.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedido_seq")
+    @SequenceGenerator(name = "pedido_seq", sequenceName = "pedido_seq", allocationSize = 50)
     @Schema(description = "Identificador de pedido")
         private Long id;
 
@@ -36,6 +49,13 @@ public class Pedido {
      */
     @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true)
     /*
+    * @BatchSize: al inicializar la colección de un pedido, Hibernate carga también las de
+    * hasta 50 pedidos más del mismo contexto en un solo SELECT ... WHERE pedido_id IN (...).
+    */
+    @BatchSize(size = 50)
+    // Ids de las líneas del pedido; cada línea se guarda en la región de PedidoProducto
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.REGION_PRODUCTOS_PEDIDO)
+    /*
     * @JsonManagedReference: evita la recursión infinita al serializar a JSON 
     * (relación bidireccional con @JsonBackReference en PedidoProducto).
     */
@@ -48,4 +68,15 @@ public class Pedido {
     @Schema(description = "Total del pedido")
     @Column(name = "total")
         private double total;
+
+    /*
+     * @Version: bloqueo optimista. Cada UPDATE compara y aumenta la versión; si otro cliente modificó el pedido
+     * entretanto, el UPDATE no encuentra la fila y la escritura falla en lugar de pisar el cambio ajeno.
+     * También es el ETag del pedido en la API. La migración V2 agrega la columna
+     * con 0 en las filas existentes.
+     */
+    @Version
+    @Schema(description = "Versión del pedido (bloqueo optimista); se devuelve como ETag")
+    @Column(name = "version")
+        private Long version;
 }
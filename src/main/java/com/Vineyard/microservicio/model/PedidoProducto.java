@@ -2,6 +2,10 @@ package com.Vineyard.microservicio.model;
 
 import java.io.Serializable;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.Vineyard.microservicio.config.CacheConfig;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -19,6 +23,7 @@ import lombok.NoArgsConstructor;
 
 // Implementa Serializable, lo cual es requisito de JPA para claves compuestas.
 @Schema(description = "Entidad que representa la relación entre pedido y producto")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.REGION_PEDIDO_PRODUCTO)
 public class PedidoProducto implements Serializable {
 
     //Clave primaria compuesta que identifica de forma única la relación entre un pedido y un producto
@@ -0,0 +1,32 @@
+package com.Vineyard.microservicio.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Copia local de los precios de productos. No se consulta fila a fila:
+ * CatalogoPrecios la lee completa y la mantiene en memoria.
+ */
+@Entity
+@Table(name = "precio_producto")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Precio unitario de un producto")
+public class PrecioProducto {
+
+    @Id
+    @Schema(description = "Identificador del producto")
+    @Column(name = "producto_id")
+        private Long productoId;
+
+    @Schema(description = "Precio unitario")
+    @Column(name = "precio", nullable = false)
+        private double precio;
+}
@@ -0,0 +1,42 @@
+package com.Vineyard.microservicio.model;
+
+import java.time.LocalDate;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Resumen de ventas de un día. VentaDiariaService lo mantiene al guardar o eliminar pedidos,
+ * con UPDATE ... SET pedidos = pedidos + ? (nunca leyendo y reescribiendo el valor).
+ */
+@Entity
+@Table(name = "venta_diaria")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Ventas de un día")
+public class VentaDiaria {
+
+    @Id
+    @Schema(description = "Día")
+    @Column(name = "fecha")
+        private LocalDate fecha;
+
+    @Schema(description = "Cantidad de pedidos")
+    @Column(name = "pedidos", nullable = false)
+        private long pedidos;
+
+    @Schema(description = "Unidades vendidas (suma de las cantidades)")
+    @Column(name = "unidades", nullable = false)
+        private long unidades;
+
+    @Schema(description = "Suma de los totales de los pedidos")
+    @Column(name = "ingresos", nullable = false)
+        private double ingresos;
+}
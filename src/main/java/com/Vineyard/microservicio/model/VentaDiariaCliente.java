@@ -0,0 +1,39 @@
+package com.Vineyard.microservicio.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Resumen de ventas de un cliente en un día; se mantiene igual que VentaDiaria.
+ * La clave empieza por cliente_id para que el rango de fechas de un cliente sea un rango de índice.
+ */
+@Entity
+@Table(name = "venta_diaria_cliente")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Ventas de un cliente en un día")
+public class VentaDiariaCliente {
+
+    @EmbeddedId
+    @Schema(description = "Cliente y día")
+        private VentaDiariaClienteId id;
+
+    @Schema(description = "Cantidad de pedidos")
+    @Column(name = "pedidos", nullable = false)
+        private long pedidos;
+
+    @Schema(description = "Unidades vendidas (suma de las cantidades)")
+    @Column(name = "unidades", nullable = false)
+        private long unidades;
+
+    @Schema(description = "Suma de los totales de los pedidos")
+    @Column(name = "ingresos", nullable = false)
+        private double ingresos;
+}
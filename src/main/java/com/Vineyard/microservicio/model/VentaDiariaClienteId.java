@@ -0,0 +1,26 @@
+package com.Vineyard.microservicio.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Embeddable
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Clave compuesta del resumen de ventas por cliente y día")
+public class VentaDiariaClienteId implements Serializable {
+
+    @Column(name = "cliente_id")
+    private Long clienteId;
+
+    @Column(name = "fecha")
+    private LocalDate fecha;
+
+}
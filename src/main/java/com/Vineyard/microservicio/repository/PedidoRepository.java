@@ -1,34 +1,146 @@
 package com.Vineyard.microservicio.repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import com.Vineyard.microservicio.config.CacheConfig;
+import com.Vineyard.microservicio.dto.PedidoResumen;
+import com.Vineyard.microservicio.model.EstadoPedido;
 import com.Vineyard.microservicio.model.Pedido;
 
+/*
+ * Las consultas que devuelven listas de pedidos cargan sus productos en la misma consulta
+ * (@EntityGraph) para evitar un SELECT por pedido al serializar la colección.
+ * Las consultas paginadas o limitadas no usan join fetch (Hibernate paginaría en memoria);
+ * en ellas los productos se cargan por lotes gracias a @BatchSize en Pedido.productos.
+ * Las consultas find*Resumen* devuelven PedidoResumen con una expresión "select new": no cargan productos
+ * y la cantidad de líneas sale de una subconsulta (size).
+ */
 @Repository
 public interface PedidoRepository extends JpaRepository<Pedido, Long>{
 
+    String SELECT_RESUMEN = "select new com.Vineyard.microservicio.dto.PedidoResumen("
+        + "p.id, p.clienteId, p.fecha, p.total, size(p.productos)) from Pedido p ";
+
 
     // Buscar pedidos por cliente
+    @EntityGraph(attributePaths = "productos")
     List<Pedido> findByClienteId(Long clienteId);
 
 
     // Buscar pedidos por fecha exacta
+    @EntityGraph(attributePaths = "productos")
     List<Pedido> findByFecha(LocalDate fecha);
 
 
     // Buscar pedidos entre fechas
+    @EntityGraph(attributePaths = "productos")
     List<Pedido> findByFechaBetween(LocalDate desde, LocalDate hasta);
 
 
+    // Las mismas consultas para fechas pasadas (PedidoService elige según la fecha): el resultado se guarda en la
+    // caché de consultas de Hibernate y los pedidos se arman desde la caché de entidades (ver CacheConfig).
+    @EntityGraph(attributePaths = "productos")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.REGION_PEDIDOS_HISTORICOS)
+    })
+    List<Pedido> findHistoricosByFecha(LocalDate fecha);
+
+    @EntityGraph(attributePaths = "productos")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.REGION_PEDIDOS_HISTORICOS)
+    })
+    List<Pedido> findHistoricosByFechaBetween(LocalDate desde, LocalDate hasta);
+
+
+    // Recorrer pedidos entre fechas sin materializar la lista (exportación).
+    // Debe consumirse dentro de una transacción y cerrarse al terminar.
+    // fetchSize: filas que el driver trae por ida y vuelta; readOnly: Hibernate no guarda copia para dirty checking.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Pedido> streamByFechaBetweenOrderByIdAsc(LocalDate desde, LocalDate hasta);
+
+
     // Contar pedidos por cliente
     long countByClienteId(Long clienteId);
 
 
-    // Obtener los pedidos más recientes (ordenados por fecha descendente)
-    List<Pedido> findTop10ByOrderByFechaDesc();
+    // Pedidos de una lista de ids junto con sus productos (PedidoService los pide por bloques)
+    @EntityGraph(attributePaths = "productos")
+    List<Pedido> findByIdIn(Collection<Long> ids);
+
+
+    // [clienteId, cantidad] de los clientes de la lista que tienen pedidos, en un solo GROUP BY
+    @Query("select p.clienteId, count(p) from Pedido p where p.clienteId in :clienteIds group by p.clienteId")
+    List<Object[]> countByClienteIdIn(@Param("clienteIds") Collection<Long> clienteIds);
+
+
+    // Obtener los pedidos más recientes (por fecha descendente y, a igual fecha, por id descendente)
+    List<Pedido> findAllByOrderByFechaDescIdDesc(Pageable pageable);
+
+    // Paginación por cursor (keyset sobre id): pedidos posteriores al id dado
+    List<Pedido> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+
+    // Paginación por cursor (keyset sobre id): pedidos anteriores al id dado, del más cercano al más lejano
+    List<Pedido> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    // Resúmenes: mismas consultas que los listados de entidades, sin productos
+    @Query(value = SELECT_RESUMEN, countQuery = "select count(p) from Pedido p")
+    Page<PedidoResumen> findResumenes(Pageable pageable);
+
+    @Query(SELECT_RESUMEN + "order by p.id")
+    List<PedidoResumen> findAllResumenes();
+
+    @Query(SELECT_RESUMEN + "where p.id > :id order by p.id asc")
+    List<PedidoResumen> findResumenesByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_RESUMEN + "where p.id < :id order by p.id desc")
+    List<PedidoResumen> findResumenesByIdLessThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_RESUMEN + "where p.clienteId = :clienteId order by p.id")
+    List<PedidoResumen> findResumenesByClienteId(@Param("clienteId") Long clienteId);
+
+    @Query(SELECT_RESUMEN + "where p.fecha = :fecha order by p.id")
+    List<PedidoResumen> findResumenesByFecha(@Param("fecha") LocalDate fecha);
+
+    @Query(SELECT_RESUMEN + "where p.fecha between :desde and :hasta order by p.id")
+    List<PedidoResumen> findResumenesByFechaBetween(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    // Buscar pedido por id junto con sus productos (el resultado se cachea en PedidoService)
+    @Override
+    @EntityGraph(attributePaths = "productos")
+    Optional<Pedido> findById(Long id);
+
+
+    // Cliente, fecha, total y unidades de un pedido, sin cargar la entidad
+    // (para invalidar la caché de conteos y descontar el pedido del resumen de ventas)
+    @Query("select new com.Vineyard.microservicio.model.EstadoPedido(p.clienteId, p.fecha, p.total, coalesce(sum(pp.cantidad), 0)) "
+         + "from Pedido p left join p.productos pp where p.id = :id group by p.clienteId, p.fecha, p.total")
+    Optional<EstadoPedido> findEstadoById(@Param("id") Long id);
+
+    // Versión actual de un pedido, para guardar sin conflicto cuando el cliente no envía la suya
+    @Query("select p.version from Pedido p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
 
     // Eliminar pedido por id
     void deleteById(Long id);
@@ -0,0 +1,25 @@
+package com.Vineyard.microservicio.repository;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import com.Vineyard.microservicio.model.PrecioProducto;
+
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface PrecioProductoRepository extends JpaRepository<PrecioProducto, Long>{
+
+    // Recorrer todos los precios para recargar el catálogo en memoria (dentro de una transacción)
+    @Query("select p from PrecioProducto p")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<PrecioProducto> streamAll();
+
+}
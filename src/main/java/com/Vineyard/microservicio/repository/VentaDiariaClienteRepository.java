@@ -0,0 +1,36 @@
+package com.Vineyard.microservicio.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.Vineyard.microservicio.dto.ClienteTop;
+import com.Vineyard.microservicio.model.VentaDiariaCliente;
+import com.Vineyard.microservicio.model.VentaDiariaClienteId;
+
+@Repository
+public interface VentaDiariaClienteRepository extends JpaRepository<VentaDiariaCliente, VentaDiariaClienteId> {
+
+    // Suma por cliente de las filas del rango; solo clientes con pedidos
+    String SELECT_TOP = "select new com.Vineyard.microservicio.dto.ClienteTop(v.id.clienteId, sum(v.pedidos), sum(v.unidades), "
+        + "sum(v.ingresos)) from VentaDiariaCliente v where v.id.fecha between :desde and :hasta group by v.id.clienteId "
+        + "having sum(v.pedidos) > 0 ";
+
+    // Días con ventas de un cliente en el rango, usando la clave primaria (cliente_id, fecha)
+    List<VentaDiariaCliente> findByIdClienteIdAndIdFechaBetweenOrderByIdFechaAsc(Long clienteId, LocalDate desde, LocalDate hasta);
+
+    /*
+     * Clientes con más pedidos (o más ingresos) en el rango, agrupados en la base; el Pageable limita a los
+     * primeros k. Leen el índice venta_diaria_cliente_fecha_idx.
+     */
+    @Query(SELECT_TOP + "order by sum(v.pedidos) desc, sum(v.ingresos) desc, v.id.clienteId")
+    List<ClienteTop> findTopPorPedidos(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta, Pageable pageable);
+
+    @Query(SELECT_TOP + "order by sum(v.ingresos) desc, sum(v.pedidos) desc, v.id.clienteId")
+    List<ClienteTop> findTopPorIngresos(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta, Pageable pageable);
+}
@@ -0,0 +1,16 @@
+package com.Vineyard.microservicio.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.Vineyard.microservicio.model.VentaDiaria;
+
+@Repository
+public interface VentaDiariaRepository extends JpaRepository<VentaDiaria, LocalDate> {
+
+    // Una fila por día con ventas: el costo depende de la cantidad de días, no de pedidos
+    List<VentaDiaria> findByFechaBetweenOrderByFechaAsc(LocalDate desde, LocalDate hasta);
+}
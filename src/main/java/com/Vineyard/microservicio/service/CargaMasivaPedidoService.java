@@ -0,0 +1,185 @@
+package com.Vineyard.microservicio.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Vineyard.microservicio.dto.ResultadoCargaMasiva;
+import com.Vineyard.microservicio.dto.ResultadoItemCarga;
+import com.Vineyard.microservicio.event.PedidoGuardadoEvent;
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.repository.PedidoRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/*
+ * Alta de muchos pedidos en una sola llamada.
+ *
+ * Los pedidos se guardan en lotes de TAMANIO_LOTE, cada lote en su propia transacción, de modo que
+ * Hibernate envía los INSERT de pedido y de pedido_productos como lotes JDBC (hibernate.jdbc.batch_size).
+ * Si un lote falla, se reintenta pedido por pedido para aislar el que produjo el error:
+ * un pedido inválido no revierte los demás.
+ * El total de cada pedido se calcula con CatalogoPrecios durante la validación.
+ *
+ * No usa @Transactional a nivel de clase: cada lote maneja su propia transacción.
+ */
+@Service
+public class CargaMasivaPedidoService {
+
+    // Máximo de pedidos aceptados por llamada
+    public static final int TAMANIO_MAXIMO_CARGA = 10_000;
+
+    // Pedidos por transacción; coincide con hibernate.jdbc.batch_size y el allocationSize de pedido_seq
+    public static final int TAMANIO_LOTE = 50;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CatalogoPrecios catalogoPrecios;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public CargaMasivaPedidoService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+     /*
+     * Guarda los pedidos recibidos y devuelve el resultado de cada uno, en el mismo orden.
+     */
+    public ResultadoCargaMasiva cargarPedidos(List<Pedido> pedidos) {
+        ResultadoItemCarga[] resultados = new ResultadoItemCarga[pedidos.size()];
+        List<Integer> lote = new ArrayList<>(TAMANIO_LOTE);
+
+        for (int i = 0; i < pedidos.size(); i++) {
+            String error = validar(pedidos.get(i));
+            if (error != null) {
+                resultados[i] = ResultadoItemCarga.fallido(i, error);
+                continue;
+            }
+            lote.add(i);
+            if (lote.size() == TAMANIO_LOTE) {
+                guardarLote(pedidos, lote, resultados);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            guardarLote(pedidos, lote, resultados);
+        }
+
+        int creados = (int) Arrays.stream(resultados).filter(ResultadoItemCarga::isCreado).count();
+        return new ResultadoCargaMasiva(pedidos.size(), creados, pedidos.size() - creados, Arrays.asList(resultados));
+    }
+
+    private void guardarLote(List<Pedido> pedidos, List<Integer> indices, ResultadoItemCarga[] resultados) {
+        try {
+            transactionTemplate.executeWithoutResult(estado -> {
+                for (Integer indice : indices) {
+                    persistir(pedidos.get(indice));
+                }
+                pedidoRepository.flush();
+                for (Integer indice : indices) {
+                    eventPublisher.publishEvent(new PedidoGuardadoEvent(pedidos.get(indice), null));
+                }
+            });
+            for (Integer indice : indices) {
+                resultados[indice] = ResultadoItemCarga.creado(indice, pedidos.get(indice).getId());
+            }
+        } catch (RuntimeException e) {
+            // El lote se revirtió completo: se reintenta cada pedido por separado para aislar el que falla.
+            for (Integer indice : indices) {
+                resultados[indice] = guardarIndividual(pedidos.get(indice), indice);
+            }
+        } finally {
+            // Los pedidos ya escritos no se vuelven a usar: se liberan del contexto de persistencia.
+            entityManager.clear();
+        }
+    }
+
+    private ResultadoItemCarga guardarIndividual(Pedido pedido, int indice) {
+        reiniciarIdentificadores(pedido);
+        try {
+            transactionTemplate.executeWithoutResult(estado -> {
+                persistir(pedido);
+                pedidoRepository.flush();
+                eventPublisher.publishEvent(new PedidoGuardadoEvent(pedido, null));
+            });
+            return ResultadoItemCarga.creado(indice, pedido.getId());
+        } catch (RuntimeException e) {
+            return ResultadoItemCarga.fallido(indice, "No se pudo guardar el pedido: " + causaRaiz(e).getMessage());
+        }
+    }
+
+    private void persistir(Pedido pedido) {
+        for (PedidoProducto producto : pedido.getProductos()) {
+            producto.setPedido(pedido); // Relación bidireccional
+        }
+        entityManager.persist(pedido);
+    }
+
+    // Tras un rollback los pedidos conservan el id asignado por la secuencia; se limpian antes del reintento.
+    private static void reiniciarIdentificadores(Pedido pedido) {
+        pedido.setId(null);
+        for (PedidoProducto producto : pedido.getProductos()) {
+            if (producto.getId() != null) {
+                producto.getId().setPedidoId(null);
+            }
+        }
+    }
+
+    private String validar(Pedido pedido) {
+        if (pedido == null) {
+            return "Pedido vacío.";
+        }
+        if (pedido.getId() != null) {
+            return "La carga masiva solo admite pedidos nuevos (sin id).";
+        }
+        if (pedido.getClienteId() == null || pedido.getClienteId() <= 0) {
+            return "Cliente inválido.";
+        }
+        if (pedido.getFecha() == null) {
+            return "La fecha es obligatoria.";
+        }
+        if (pedido.getProductos() == null) {
+            return "La lista de productos es obligatoria.";
+        }
+        for (PedidoProducto producto : pedido.getProductos()) {
+            if (producto.getId() == null || producto.getId().getProductoId() == null) {
+                return "Todos los productos deben indicar productoId.";
+            }
+            if (producto.getCantidad() == null || producto.getCantidad() <= 0) {
+                return "La cantidad de cada producto debe ser mayor a cero.";
+            }
+        }
+        try {
+            catalogoPrecios.actualizarTotal(pedido);
+        } catch (ProductoSinPrecioException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    private static Throwable causaRaiz(Throwable e) {
+        Throwable causa = e;
+        while (causa.getCause() != null && causa.getCause() != causa) {
+            causa = causa.getCause();
+        }
+        return causa;
+    }
+}
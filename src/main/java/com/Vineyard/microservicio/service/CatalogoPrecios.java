@@ -0,0 +1,200 @@
+package com.Vineyard.microservicio.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.model.PrecioProducto;
+import com.Vineyard.microservicio.repository.PrecioProductoRepository;
+
+/*
+ * Precios unitarios por producto, en memoria, para calcular el total de los pedidos en el servidor.
+ *
+ * La tabla precio_producto se lee completa al iniciar y cada pedidos.precios.refresco (5 minutos por defecto);
+ * nunca se consulta un precio fila a fila. Los precios se guardan en una tabla hash de direccionamiento
+ * abierto con claves long y valores double, sin objetos Long/Double: buscar un precio y sumar el total de un
+ * pedido no crea objetos. Cada recarga arma una tabla nueva y la publica de una vez (campo volatile).
+ */
+@Component
+public class CatalogoPrecios {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogoPrecios.class);
+
+    @Autowired
+    private PrecioProductoRepository precioProductoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Si es false (por defecto) se conserva el total enviado por el cliente. Se activa una vez cargada la
+    // tabla precio_producto: con el catálogo vacío todo pedido se rechaza con ProductoSinPrecioException.
+    @Value("${pedidos.precios.calcular-total:false}")
+    private boolean calcularTotal;
+
+    private volatile TablaPrecios tabla = new TablaPrecios(new long[0], new double[0], 0);
+
+     /*
+     * Recalcula el total del pedido a partir de la cantidad de cada producto y el catálogo.
+     * throws ProductoSinPrecioException si algún producto no tiene precio.
+     */
+    public void actualizarTotal(Pedido pedido) {
+        if (calcularTotal) {
+            pedido.setTotal(calcularTotal(pedido.getProductos()));
+        }
+    }
+
+     /*
+     * Suma cantidad * precio de cada línea, redondeado a centavos.
+     * throws ProductoSinPrecioException si algún producto no tiene precio.
+     */
+    public double calcularTotal(List<PedidoProducto> productos) {
+        TablaPrecios precios = this.tabla;
+        double total = 0;
+        for (int i = 0, n = productos.size(); i < n; i++) {
+            PedidoProducto linea = productos.get(i);
+            Long productoId = linea.getId() != null ? linea.getId().getProductoId() : null;
+            double precio = productoId != null ? precios.precio(productoId) : Double.NaN;
+            if (Double.isNaN(precio)) {
+                throw new ProductoSinPrecioException(productoId);
+            }
+            Integer cantidad = linea.getCantidad();
+            total += precio * (cantidad != null ? cantidad : 0);
+        }
+        return Math.round(total * 100) / 100.0;
+    }
+
+     /*
+     * Precio unitario del producto, o NaN si no está en el catálogo.
+     */
+    public double precio(long productoId) {
+        return tabla.precio(productoId);
+    }
+
+    public int cantidadProductos() {
+        return tabla.cantidad;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlIniciar() {
+        try {
+            recargar();
+        } catch (RuntimeException e) {
+            // Se reintenta en la próxima recarga programada.
+            log.warn("No se pudo cargar el catálogo de precios al iniciar: {}", e.getMessage());
+        }
+        if (calcularTotal && tabla.cantidad == 0) {
+            log.error("pedidos.precios.calcular-total está activo pero el catálogo de precios está vacío: "
+                + "los pedidos se rechazarán hasta cargar la tabla precio_producto");
+        }
+    }
+
+     /*
+     * Lee la tabla precio_producto completa y reemplaza el catálogo en memoria.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.precios.refresco:PT5M}", initialDelayString = "${pedidos.precios.refresco:PT5M}")
+    public void recargar() {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setReadOnly(true);
+        transaccion.executeWithoutResult(estado -> {
+            long[] ids = new long[1024];
+            double[] precios = new double[1024];
+            int cantidad = 0;
+            try (Stream<PrecioProducto> filas = precioProductoRepository.streamAll()) {
+                for (PrecioProducto fila : (Iterable<PrecioProducto>) filas::iterator) {
+                    if (cantidad == ids.length) {
+                        ids = Arrays.copyOf(ids, cantidad * 2);
+                        precios = Arrays.copyOf(precios, cantidad * 2);
+                    }
+                    ids[cantidad] = fila.getProductoId();
+                    precios[cantidad] = fila.getPrecio();
+                    cantidad++;
+                }
+            }
+            reemplazar(ids, precios, cantidad);
+            log.info("Catálogo de precios cargado: {} productos", cantidad);
+        });
+    }
+
+     /*
+     * Reemplaza el catálogo con los primeros "cantidad" pares (ids[i], precios[i]).
+     */
+    public void reemplazar(long[] ids, double[] precios, int cantidad) {
+        this.tabla = new TablaPrecios(ids, precios, cantidad);
+    }
+
+    /*
+     * Tabla hash inmutable long -> double con sondeo lineal y factor de carga de 0,5 como máximo.
+     */
+    static final class TablaPrecios {
+
+        // Clave reservada para marcar posiciones libres
+        private static final long LIBRE = Long.MIN_VALUE;
+
+        private final long[] claves;
+        private final double[] valores;
+        private final int mascara;
+        private final int cantidad;
+
+        TablaPrecios(long[] ids, double[] precios, int cantidad) {
+            int capacidad = Integer.highestOneBit(Math.max(1, cantidad * 2 - 1)) << 1;
+            this.claves = new long[capacidad];
+            this.valores = new double[capacidad];
+            this.mascara = capacidad - 1;
+            Arrays.fill(claves, LIBRE);
+
+            int distintos = 0;
+            for (int i = 0; i < cantidad; i++) {
+                long id = ids[i];
+                if (id == LIBRE) {
+                    continue;
+                }
+                int posicion = posicion(id);
+                while (claves[posicion] != LIBRE && claves[posicion] != id) {
+                    posicion = (posicion + 1) & mascara;
+                }
+                if (claves[posicion] == LIBRE) {
+                    distintos++;
+                }
+                claves[posicion] = id;
+                valores[posicion] = precios[i];
+            }
+            this.cantidad = distintos;
+        }
+
+        double precio(long id) {
+            if (id == LIBRE) {
+                return Double.NaN;
+            }
+            int posicion = posicion(id);
+            while (true) {
+                long clave = claves[posicion];
+                if (clave == id) {
+                    return valores[posicion];
+                }
+                if (clave == LIBRE) {
+                    return Double.NaN;
+                }
+                posicion = (posicion + 1) & mascara;
+            }
+        }
+
+        // Mezcla los bits del id para que ids consecutivos no caigan en posiciones contiguas
+        private int posicion(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mascara;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.Vineyard.microservicio.service;
+
+/*
+ * Se lanza cuando una Idempotency-Key ya se usó para crear un pedido con otros datos.
+ */
+public class ClaveIdempotenciaReutilizadaException extends RuntimeException {
+
+    public ClaveIdempotenciaReutilizadaException(String clave) {
+        super("La clave de idempotencia " + clave + " ya se usó con otro pedido.");
+    }
+}
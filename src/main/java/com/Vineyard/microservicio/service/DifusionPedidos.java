@@ -0,0 +1,363 @@
+package com.Vineyard.microservicio.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.Vineyard.microservicio.event.PedidoEliminadoEvent;
+import com.Vineyard.microservicio.event.PedidoGuardadoEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletResponse;
+
+/*
+ * Difunde los pedidos guardados y eliminados a los clientes de GET /api/v1/pedidos/stream (Server-Sent Events),
+ * para que las pantallas que consultaban /ultimos cada segundo mantengan una sola conexión abierta.
+ *
+ * Eventos: "pedido" (creado o modificado, JSON del pedido), "eliminado" ({"id": ...}) y "perdidos" (cantidad
+ * de eventos descartados para ese cliente: conviene releer /ultimos). El id SSE es una secuencia creciente.
+ *
+ * Publicar no bloquea a quien guarda el pedido: cada evento se serializa una vez, después del commit, y se
+ * agrega a la cola de cada suscriptor. Cada cola tiene a lo sumo pedidos.stream.buffer eventos; si un cliente
+ * lento la llena se descartan los más viejos y se le avisa con "perdidos". Unos pocos hilos
+ * (pedidos.stream.hilos) escriben las colas en las conexiones, cada suscriptor a su turno.
+ *
+ * Cada escritura en la conexión es bloqueante, así que un cliente lento no debe retener un hilo: se lo
+ * desconecta si una escritura tarda más de pedidos.stream.plazo-escritura (se cierra la respuesta, y con ella
+ * la escritura falla) o si pierde eventos en TURNOS_CON_PERDIDAS turnos seguidos. El navegador se reconecta y
+ * relee /ultimos.
+ */
+@Component
+public class DifusionPedidos {
+
+    private static final Logger log = LoggerFactory.getLogger(DifusionPedidos.class);
+
+    // Eventos que un hilo escribe a un suscriptor antes de pasar al siguiente
+    private static final int EVENTOS_POR_TURNO = 16;
+
+    // Tiempo de reconexión que se sugiere al navegador (EventSource) si se corta la conexión
+    private static final long RECONEXION_MS = 3000;
+
+    // Turnos seguidos con eventos descartados tras los que se desconecta al cliente: no alcanza a leerlos
+    private static final int TURNOS_CON_PERDIDAS = 3;
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger cantidad = new AtomicInteger();
+    private final AtomicLong secuencia = new AtomicLong();
+
+    private final ObjectMapper objectMapper;
+    private final int buffer;
+    private final int maximoSuscriptores;
+    private final Duration duracion;
+    private final long plazoEscrituraNanos;
+    private final Executor envios;
+
+    @Autowired
+    public DifusionPedidos(ObjectMapper objectMapper,
+            @Value("${pedidos.stream.buffer:64}") int buffer,
+            @Value("${pedidos.stream.maximo-suscriptores:10000}") int maximoSuscriptores,
+            @Value("${pedidos.stream.duracion:PT30M}") Duration duracion,
+            @Value("${pedidos.stream.plazo-escritura:PT5S}") Duration plazoEscritura,
+            @Value("${pedidos.stream.hilos:4}") int hilos) {
+        this(objectMapper, buffer, maximoSuscriptores, duracion, plazoEscritura,
+            Executors.newFixedThreadPool(hilos, tarea -> {
+                Thread hilo = new Thread(tarea, "difusion-pedidos");
+                hilo.setDaemon(true);
+                return hilo;
+            }));
+    }
+
+    DifusionPedidos(ObjectMapper objectMapper, int buffer, int maximoSuscriptores, Duration duracion,
+            Duration plazoEscritura, Executor envios) {
+        this.objectMapper = objectMapper;
+        this.buffer = buffer;
+        this.maximoSuscriptores = maximoSuscriptores;
+        this.duracion = duracion;
+        this.plazoEscrituraNanos = plazoEscritura.toNanos();
+        this.envios = envios;
+    }
+
+     /*
+     * Abre una suscripción. Vacío si ya hay pedidos.stream.maximo-suscriptores conexiones abiertas.
+     * La conexión se cierra a los pedidos.stream.duracion; el navegador se reconecta solo.
+     */
+    public Optional<SseEmitter> suscribir(HttpServletResponse response) {
+        SseEmitter emitter = new SseEmitter(duracion.toMillis());
+        return registrar(emitter, () -> response.getOutputStream().close()) ? Optional.of(emitter) : Optional.empty();
+    }
+
+    // conexion: cierra la respuesta de un cliente cuya escritura no termina
+    boolean registrar(SseEmitter emitter, Closeable conexion) {
+        if (cantidad.incrementAndGet() > maximoSuscriptores) {
+            cantidad.decrementAndGet();
+            return false;
+        }
+        Suscriptor suscriptor = new Suscriptor(emitter, conexion);
+        suscriptores.add(suscriptor);
+        emitter.onCompletion(suscriptor::finalizado);
+        emitter.onTimeout(() -> suscriptor.completar(null));
+        emitter.onError(error -> suscriptor.finalizado());
+        suscriptor.encolar(construir(SseEmitter.event().reconnectTime(RECONEXION_MS).comment("conectado")));
+        return true;
+    }
+
+    public int getSuscriptores() {
+        return cantidad.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void pedidoGuardado(PedidoGuardadoEvent evento) {
+        difundir("pedido", evento.pedido());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void pedidoEliminado(PedidoEliminadoEvent evento) {
+        difundir("eliminado", Map.of("id", evento.id()));
+    }
+
+    // Mantiene abiertas las conexiones inactivas (proxies) y detecta los clientes que se fueron
+    @Scheduled(fixedDelayString = "${pedidos.stream.latido:PT15S}")
+    public void latido() {
+        Set<DataWithMediaType> latido = construir(SseEmitter.event().comment(""));
+        suscriptores.forEach(suscriptor -> suscriptor.encolarSiVacia(latido));
+    }
+
+    // Desconecta a los clientes cuya escritura en curso superó el plazo, para liberar el hilo que la hace
+    @Scheduled(fixedDelayString = "${pedidos.stream.plazo-escritura:PT5S}")
+    public void revisarEscrituras() {
+        long ahora = System.nanoTime();
+        suscriptores.forEach(suscriptor -> suscriptor.revisar(ahora));
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        suscriptores.forEach(suscriptor -> suscriptor.completar(null));
+        if (envios instanceof ExecutorService servicio) {
+            servicio.shutdown();
+        }
+    }
+
+    private void difundir(String nombre, Object datos) {
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(datos);
+        } catch (JsonProcessingException e) {
+            log.warn("No se pudo difundir el evento {}: {}", nombre, e.getMessage());
+            return;
+        }
+        // El mismo contenido para todos los suscriptores
+        Set<DataWithMediaType> mensaje = construir(SseEmitter.event()
+            .id(Long.toString(secuencia.incrementAndGet()))
+            .name(nombre)
+            .data(json));
+        suscriptores.forEach(suscriptor -> suscriptor.encolar(mensaje));
+    }
+
+    // Conserva el orden de las partes del evento ("id:...", datos, "\n\n")
+    private static Set<DataWithMediaType> construir(SseEmitter.SseEventBuilder evento) {
+        return Collections.unmodifiableSet(evento.build());
+    }
+
+    /*
+     * Cola de un cliente. "programado" asegura que a lo sumo un hilo escriba a la vez en su conexión;
+     * el hilo que publica solo encola y, si hace falta, programa el envío.
+     */
+    private final class Suscriptor implements Runnable {
+
+        private final SseEmitter emitter;
+        private final Closeable conexion;
+        private final ArrayDeque<Set<DataWithMediaType>> cola = new ArrayDeque<>();
+        private final AtomicBoolean programado = new AtomicBoolean();
+        private final AtomicBoolean activo = new AtomicBoolean(true);
+        // El emitter se cierra una sola vez, aunque la escritura falle y además se descarte al cliente
+        private final AtomicBoolean completado = new AtomicBoolean();
+        private long perdidos;
+        private int turnosConPerdidas;
+
+        // Si hay una escritura en curso y desde cuándo (System.nanoTime), protegidos por this
+        private boolean escribiendo;
+        private long escribiendoDesde;
+        private String motivoDescarte;
+
+        Suscriptor(SseEmitter emitter, Closeable conexion) {
+            this.emitter = emitter;
+            this.conexion = conexion;
+        }
+
+        void encolar(Set<DataWithMediaType> mensaje) {
+            synchronized (this) {
+                if (cola.size() == buffer) {
+                    cola.pollFirst();
+                    perdidos++;
+                }
+                cola.addLast(mensaje);
+            }
+            programar();
+        }
+
+        void encolarSiVacia(Set<DataWithMediaType> mensaje) {
+            synchronized (this) {
+                if (!cola.isEmpty()) {
+                    return;
+                }
+                cola.addLast(mensaje);
+            }
+            programar();
+        }
+
+        private void programar() {
+            if (activo.get() && programado.compareAndSet(false, true)) {
+                envios.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            Exception error = null;
+            try {
+                for (int i = 0; i < EVENTOS_POR_TURNO && activo.get(); i++) {
+                    Set<DataWithMediaType> mensaje;
+                    long descartados;
+                    synchronized (this) {
+                        mensaje = cola.pollFirst();
+                        descartados = perdidos;
+                        perdidos = 0;
+                        if (i == 0) {
+                            turnosConPerdidas = descartados > 0 ? turnosConPerdidas + 1 : 0;
+                        }
+                    }
+                    if (i == 0 && turnosConPerdidas >= TURNOS_CON_PERDIDAS) {
+                        descartar("perdió eventos en " + TURNOS_CON_PERDIDAS + " turnos seguidos");
+                        break;
+                    }
+                    if (descartados > 0) {
+                        escribir(construir(SseEmitter.event().name("perdidos").data(descartados)));
+                    }
+                    if (mensaje == null) {
+                        break;
+                    }
+                    escribir(mensaje);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // El cliente cerró la conexión, la suscripción ya terminó o revisar() cerró una escritura lenta
+                quitar();
+                error = e;
+            } finally {
+                programado.set(false);
+            }
+            String motivo;
+            synchronized (this) {
+                motivo = motivoDescarte;
+                motivoDescarte = null;
+            }
+            if (motivo != null) {
+                log.info("Se desconecta un cliente de /stream: {}", motivo);
+                error = new IOException("Cliente lento: " + motivo);
+            }
+            if (error != null) {
+                // Se cierra desde el hilo que escribe: cerrar el emitter espera a que termine la escritura en curso
+                completar(error);
+            }
+            boolean quedan;
+            synchronized (this) {
+                quedan = !cola.isEmpty();
+            }
+            if (quedan) {
+                programar();
+            }
+        }
+
+        private void escribir(Set<DataWithMediaType> mensaje) throws IOException {
+            synchronized (this) {
+                escribiendo = true;
+                escribiendoDesde = System.nanoTime();
+            }
+            try {
+                emitter.send(mensaje);
+            } finally {
+                synchronized (this) {
+                    escribiendo = false;
+                }
+            }
+        }
+
+        // Una escritura bloqueada no responde a interrupciones: se cierra la respuesta para que falle
+        void revisar(long ahora) {
+            synchronized (this) {
+                if (!escribiendo || ahora - escribiendoDesde <= plazoEscrituraNanos
+                        || !descartar("una escritura superó " + Duration.ofNanos(plazoEscrituraNanos))) {
+                    return;
+                }
+            }
+            // Fuera del lock: cerrar puede demorar y los que publican no deben esperarlo
+            try {
+                conexion.close();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("No se pudo cerrar la conexión de un cliente de /stream: {}", e.getMessage());
+            }
+        }
+
+        // Deja de atenderlo; el emitter lo cierra el hilo que escribe, al terminar el turno
+        private synchronized boolean descartar(String motivo) {
+            if (!activo.get()) {
+                return false;
+            }
+            motivoDescarte = motivo;
+            quitar();
+            return true;
+        }
+
+        void completar(Throwable error) {
+            if (completado.compareAndSet(false, true)) {
+                if (error == null) {
+                    emitter.complete();
+                } else {
+                    emitter.completeWithError(error);
+                }
+            }
+        }
+
+        // El contenedor ya cerró la respuesta (fin, plazo vencido o error)
+        void finalizado() {
+            completado.set(true);
+            quitar();
+        }
+
+        void quitar() {
+            if (activo.compareAndSet(true, false)) {
+                suscriptores.remove(this);
+                cantidad.decrementAndGet();
+                synchronized (this) {
+                    cola.clear();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.Vineyard.microservicio.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Vineyard.microservicio.model.Pedido;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/*
+ * Idempotency-Key de POST /api/v1/pedidos: el primer pedido con una clave se crea y su respuesta se guarda;
+ * los reintentos con la misma clave reciben esa respuesta sin volver a crear el pedido.
+ *
+ * Cada clave guarda la huella (SHA-256) del pedido recibido, el id creado y el JSON de la respuesta:
+ * - en memoria (Caffeine, hasta pedidos.idempotencia.maximo claves), para los reintentos inmediatos;
+ * - en la tabla pedido_idempotencia, insertada en la misma transacción que el pedido, para los reintentos que
+ *   llegan a otra instancia o después de un reinicio. Si dos instancias reciben la misma clave a la vez, la
+ *   clave primaria rechaza la segunda, su pedido se revierte y responde con el de la primera.
+ * Las claves vencen a los pedidos.idempotencia.ttl de creadas; una clave vencida se puede volver a usar aunque su
+ * fila siga en la tabla hasta la próxima purga.
+ *
+ * Las peticiones simultáneas con la misma clave en esta instancia esperan a la primera y reciben su resultado
+ * (o su error). Los errores no se guardan: un reintento posterior vuelve a ejecutar la creación.
+ */
+@Component
+public class IdempotenciaPedidos {
+
+    private static final String BUSCAR =
+        "select huella, respuesta, creada from pedido_idempotencia where clave = ? and creada > ?";
+
+    private static final String BORRAR_VENCIDA = "delete from pedido_idempotencia where clave = ? and creada <= ?";
+
+    private static final String INSERTAR =
+        "insert into pedido_idempotencia (clave, huella, pedido_id, respuesta, creada) values (?, ?, ?, ?, ?)";
+
+    // Largo máximo de la clave (columna pedido_idempotencia.clave)
+    public static final int LARGO_MAXIMO_CLAVE = 255;
+
+    /*
+     * cuerpo: JSON de la respuesta 201 original.
+     * repetida: la respuesta es de una petición anterior; el pedido no se volvió a crear.
+     */
+    public record Respuesta(String cuerpo, boolean repetida) {
+    }
+
+    private record Guardada(String huella, String cuerpo, Instant creada) {
+    }
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Duration ttl;
+    private final Cache<String, Guardada> respuestas;
+    private final ConcurrentHashMap<String, CompletableFuture<Guardada>> enCurso = new ConcurrentHashMap<>();
+    private final TransactionTemplate transactionTemplate;
+
+    public IdempotenciaPedidos(PlatformTransactionManager transactionManager,
+            @Value("${pedidos.idempotencia.ttl:PT24H}") Duration ttl,
+            @Value("${pedidos.idempotencia.maximo:10000}") long maximo) {
+        this.ttl = ttl;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // En memoria vence junto con la fila, aunque se haya leído de la base más tarde
+        this.respuestas = Caffeine.newBuilder()
+            .maximumSize(maximo)
+            .expireAfter(new Vencimiento())
+            .build();
+    }
+
+     /*
+     * Crea el pedido con guardarOActualizarPedido la primera vez que llega la clave; después devuelve la
+     * respuesta guardada.
+     * throws ClaveIdempotenciaReutilizadaException si la clave ya se usó con un pedido distinto.
+     * throws ProductoSinPrecioException igual que guardarOActualizarPedido.
+     */
+    public Respuesta crear(String clave, Pedido pedido) {
+        String huella = huella(pedido);
+        Guardada guardada = respuestas.getIfPresent(clave);
+        if (guardada != null) {
+            return repetir(clave, guardada, huella);
+        }
+
+        CompletableFuture<Guardada> propia = new CompletableFuture<>();
+        CompletableFuture<Guardada> otra = enCurso.putIfAbsent(clave, propia);
+        if (otra != null) {
+            return repetir(clave, esperar(otra), huella);
+        }
+        try {
+            // Otra petición pudo terminar entre la consulta a la caché y putIfAbsent
+            guardada = respuestas.getIfPresent(clave);
+            if (guardada == null) {
+                guardada = buscar(clave);
+            }
+            boolean repetida = guardada != null;
+            if (!repetida) {
+                guardada = ejecutar(clave, huella, pedido);
+                if (guardada == null) {
+                    // Otra instancia confirmó la misma clave primero
+                    guardada = buscar(clave);
+                    repetida = true;
+                    if (guardada == null) {
+                        throw new IllegalStateException("No se encontró la clave de idempotencia " + clave);
+                    }
+                }
+            }
+            respuestas.put(clave, guardada);
+            propia.complete(guardada);
+            return repetida ? repetir(clave, guardada, huella) : new Respuesta(guardada.cuerpo(), false);
+        } catch (RuntimeException e) {
+            propia.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(clave, propia);
+        }
+    }
+
+    // Borra las claves vencidas de la tabla
+    @Scheduled(fixedDelayString = "${pedidos.idempotencia.purga:PT1H}")
+    public void purgarVencidas() {
+        jdbcTemplate.update("delete from pedido_idempotencia where creada <= ?", Timestamp.from(Instant.now().minus(ttl)));
+    }
+
+    // null si la clave quedó confirmada por otra transacción
+    private Guardada ejecutar(String clave, String huella, Pedido pedido) {
+        try {
+            return transactionTemplate.execute(estado -> {
+                Pedido guardado = pedidoService.guardarOActualizarPedido(pedido);
+                // Con los productos ya insertados, el JSON es el mismo que devuelve POST sin clave
+                entityManager.flush();
+                String cuerpo = json(guardado);
+                Instant creada = Instant.now();
+                // La fila de un uso anterior de la clave, ya vencida pero todavía sin purgar
+                jdbcTemplate.update(BORRAR_VENCIDA, clave, Timestamp.from(creada.minus(ttl)));
+                jdbcTemplate.update(INSERTAR, clave, huella, guardado.getId(), cuerpo, Timestamp.from(creada));
+                return new Guardada(huella, cuerpo, creada);
+            });
+        } catch (DuplicateKeyException e) {
+            return null;
+        }
+    }
+
+    // Vence a los ttl de creada la clave; leer o reemplazar la entrada no la extiende
+    private final class Vencimiento implements Expiry<String, Guardada> {
+
+        @Override
+        public long expireAfterCreate(String clave, Guardada guardada, long ahora) {
+            return Math.max(0, Duration.between(Instant.now(), guardada.creada().plus(ttl)).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String clave, Guardada guardada, long ahora, long restante) {
+            return restante;
+        }
+
+        @Override
+        public long expireAfterRead(String clave, Guardada guardada, long ahora, long restante) {
+            return restante;
+        }
+    }
+
+    private Guardada buscar(String clave) {
+        List<Guardada> filas = jdbcTemplate.query(BUSCAR,
+            (rs, fila) -> new Guardada(rs.getString("huella"), rs.getString("respuesta"),
+                rs.getTimestamp("creada").toInstant()),
+            clave, Timestamp.from(Instant.now().minus(ttl)));
+        return filas.isEmpty() ? null : filas.get(0);
+    }
+
+    private static Respuesta repetir(String clave, Guardada guardada, String huella) {
+        if (!guardada.huella().equals(huella)) {
+            throw new ClaveIdempotenciaReutilizadaException(clave);
+        }
+        return new Respuesta(guardada.cuerpo(), true);
+    }
+
+    private static Guardada esperar(CompletableFuture<Guardada> otra) {
+        try {
+            return otra.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private String huella(Pedido pedido) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(objectMapper.writeValueAsBytes(pedido)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No se pudo calcular la huella del pedido.", e);
+        }
+    }
+
+    private String json(Pedido pedido) {
+        try {
+            return objectMapper.writeValueAsString(pedido);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el pedido.", e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.Vineyard.microservicio.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.Vineyard.microservicio.event.EventoPedido;
+import com.Vineyard.microservicio.event.PedidoEliminadoEvent;
+import com.Vineyard.microservicio.event.PedidoGuardadoEvent;
+import com.Vineyard.microservicio.model.Pedido;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/*
+ * Outbox de eventos de pedidos: cada creación, modificación o eliminación (eventos de PedidoService y de la
+ * carga masiva) se escribe en la tabla pedido_evento dentro de la misma transacción que el pedido, así que el
+ * evento existe si y solo si el cambio se confirmó. RelayOutboxPedidos los envía después a un DestinoEventos;
+ * los servicios que hoy consultan /ultimos o /rango-fechas periódicamente pueden suscribirse en su lugar.
+ *
+ * Igual que VentaDiariaService, los eventos se acumulan por transacción y se insertan en un solo lote antes
+ * del commit. El JSON del pedido se arma en ese momento, después de un flush, para que lleve la versión final.
+ *
+ * Se activa con pedidos.outbox.habilitado=true.
+ */
+@Component
+@ConditionalOnProperty(name = "pedidos.outbox.habilitado", havingValue = "true")
+public class OutboxPedidos {
+
+    private static final String INSERTAR =
+        "insert into pedido_evento (tipo, pedido_id, cliente_id, registrado, datos) values (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @EventListener
+    public void pedidoGuardado(PedidoGuardadoEvent evento) {
+        EventoPedido.Tipo tipo = evento.anterior() == null ? EventoPedido.Tipo.CREADO : EventoPedido.Tipo.ACTUALIZADO;
+        Pedido pedido = evento.pedido();
+        registrar(new Pendiente(tipo, pedido.getId(), pedido.getClienteId(), pedido));
+    }
+
+    @EventListener
+    public void pedidoEliminado(PedidoEliminadoEvent evento) {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("id", evento.id());
+        if (evento.eliminado() != null) {
+            datos.put("clienteId", evento.eliminado().clienteId());
+            datos.put("fecha", evento.eliminado().fecha());
+            datos.put("total", evento.eliminado().total());
+            datos.put("unidades", evento.eliminado().unidades());
+        }
+        registrar(new Pendiente(EventoPedido.Tipo.ELIMINADO, evento.id(), evento.clienteId(), datos));
+    }
+
+    private void registrar(Pendiente pendiente) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insertar(List.of(pendiente));
+            return;
+        }
+        Pendientes pendientes = (Pendientes) TransactionSynchronizationManager.getResource(this);
+        if (pendientes == null) {
+            pendientes = new Pendientes();
+            TransactionSynchronizationManager.bindResource(this, pendientes);
+            TransactionSynchronizationManager.registerSynchronization(pendientes);
+        }
+        pendientes.eventos.add(pendiente);
+    }
+
+    private void insertar(List<Pendiente> pendientes) {
+        Timestamp registrado = Timestamp.from(Instant.now());
+        List<Object[]> filas = new ArrayList<>(pendientes.size());
+        for (Pendiente pendiente : pendientes) {
+            filas.add(new Object[] {pendiente.tipo().name(), pendiente.pedidoId(), pendiente.clienteId(), registrado,
+                json(pendiente.datos())});
+        }
+        jdbcTemplate.batchUpdate(INSERTAR, filas);
+    }
+
+    private String json(Object datos) {
+        try {
+            return objectMapper.writeValueAsString(datos);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento del pedido.", e);
+        }
+    }
+
+    // datos: el Pedido (se serializa al insertar) o el mapa con el estado del pedido eliminado.
+    private record Pendiente(EventoPedido.Tipo tipo, Long pedidoId, Long clienteId, Object datos) {
+    }
+
+    // Eventos de la transacción actual; se insertan antes del commit.
+    private final class Pendientes implements TransactionSynchronization {
+
+        private final List<Pendiente> eventos = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (eventos.stream().anyMatch(e -> e.datos() instanceof Pedido)) {
+                // Aplica los UPDATE pendientes: el pedido queda con la versión que se va a confirmar
+                entityManager.flush();
+            }
+            insertar(eventos);
+            eventos.clear();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(OutboxPedidos.this);
+        }
+    }
+}
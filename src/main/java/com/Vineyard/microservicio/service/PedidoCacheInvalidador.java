@@ -0,0 +1,44 @@
+package com.Vineyard.microservicio.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.Vineyard.microservicio.config.CacheConfig;
+import com.Vineyard.microservicio.event.PedidoEliminadoEvent;
+import com.Vineyard.microservicio.event.PedidoGuardadoEvent;
+
+/*
+ * Quita de las cachés de CacheConfig solo las entradas afectadas por una escritura:
+ * el pedido modificado y la cantidad de pedidos de su cliente (y del cliente anterior si cambió).
+ * Se ejecuta después del commit para que una lectura concurrente no vuelva a cachear el valor viejo
+ * antes de que la escritura sea visible.
+ */
+@Component
+public class PedidoCacheInvalidador {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void pedidoGuardado(PedidoGuardadoEvent evento) {
+        evictar(CacheConfig.CACHE_PEDIDOS, evento.pedido().getId());
+        evictar(CacheConfig.CACHE_CONTEO_CLIENTE, evento.pedido().getClienteId());
+        evictar(CacheConfig.CACHE_CONTEO_CLIENTE, evento.clienteIdAnterior());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void pedidoEliminado(PedidoEliminadoEvent evento) {
+        evictar(CacheConfig.CACHE_PEDIDOS, evento.id());
+        evictar(CacheConfig.CACHE_CONTEO_CLIENTE, evento.clienteId());
+    }
+
+    private void evictar(String nombreCache, Long clave) {
+        Cache cache = cacheManager.getCache(nombreCache);
+        if (cache != null && clave != null) {
+            cache.evict(clave);
+        }
+    }
+}
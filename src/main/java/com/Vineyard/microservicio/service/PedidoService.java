@@ -2,34 +2,184 @@ package com.Vineyard.microservicio.service;
 
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.hibernate.CacheMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.Vineyard.microservicio.config.CacheConfig;
+import com.Vineyard.microservicio.config.LecturaCompartida;
+import com.Vineyard.microservicio.dto.PedidoResumen;
+import com.Vineyard.microservicio.event.PedidoEliminadoEvent;
+import com.Vineyard.microservicio.event.PedidoGuardadoEvent;
+import com.Vineyard.microservicio.model.EstadoPedido;
 import com.Vineyard.microservicio.model.Pedido;
 import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.model.PedidoProductoId;
 import com.Vineyard.microservicio.repository.PedidoRepository;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
 
+/*
+ * Las escrituras corren en transacciones de lectura y escritura (@Transactional de la clase).
+ * Las lecturas se marcan readOnly: Hibernate no hace flush ni guarda copias de las entidades para dirty checking,
+ * y si hay réplica configurada (ver ReplicaConfig) la consulta va a la réplica.
+ *
+ * @Timed: cada método público publica el timer pedidos.servicio (etiquetas class y method), ver MetricasConfig.
+ */
 @Service
 @Transactional
+@Timed(value = "pedidos.servicio", description = "Duración de los métodos de PedidoService", histogram = true)
 public class PedidoService {
 
+    // Tope de pedidos por página, independiente de lo que pida el cliente.
+    public static final int TAMANIO_MAXIMO_PAGINA = 100;
+
+    // Pedidos por lote en la exportación; coincide con el fetch size de streamByFechaBetweenOrderByIdAsc.
+    public static final int TAMANIO_LOTE_EXPORTACION = 500;
+
+    // Ids que admiten las consultas por lista (buscarPorIds, contarPedidosPorClientes)
+    public static final int MAXIMO_IDS_CONSULTA = 1000;
+
+    // Ids por cada IN (...): cada bloque es una consulta (Oracle admite hasta 1000 valores por lista)
+    static final int TAMANIO_BLOQUE_IN = 500;
+
 @Autowired
 private PedidoRepository pedidoRepository;
 
+@Autowired
+private ApplicationEventPublisher eventPublisher;
+
+@Autowired
+private UltimosPedidosBuffer ultimosPedidosBuffer;
+
+@Autowired
+private CatalogoPrecios catalogoPrecios;
+
+@PersistenceContext
+private EntityManager entityManager;
+
      /*
      * Obtiene todos los pedidos registrados en la base de datos.
      * return Lista de todos los pedidos.
      */
+    @Transactional(readOnly = true)
     public List<Pedido> listarPedidos(){
         return pedidoRepository.findAll();
     } 
 
+     /*
+     * Obtiene una página de pedidos ordenada por id.
+     * Se ignora el orden solicitado por el cliente y el tamaño se limita a TAMANIO_MAXIMO_PAGINA.
+     * A diferencia de listarPedidos(), nunca carga la tabla completa en memoria.
+     */
+    @Transactional(readOnly = true)
+    public Page<Pedido> listarPedidos(Pageable pageable) {
+        PageRequest pagina = PageRequest.of(pageable.getPageNumber(), limitarTamanio(pageable.getPageSize()), Sort.by("id"));
+        return pedidoRepository.findAll(pagina);
+    }
+
+     /*
+     * Paginación por cursor: obtiene hasta "tamanio" pedidos con id mayor a "despues", ordenados por id.
+     * No usa OFFSET, por lo que el costo no crece con la profundidad de la página.
+     */
+    @Transactional(readOnly = true)
+    public List<Pedido> listarPedidosDespues(Long despues, int tamanio) {
+        return pedidoRepository.findByIdGreaterThanOrderByIdAsc(despues, PageRequest.ofSize(limitarTamanio(tamanio)));
+    }
+
+     /*
+     * Paginación por cursor hacia atrás: obtiene hasta "tamanio" pedidos con id menor a "antes",
+     * devueltos en orden ascendente de id.
+     */
+    @Transactional(readOnly = true)
+    public List<Pedido> listarPedidosAntes(Long antes, int tamanio) {
+        List<Pedido> pedidos = new ArrayList<>(
+            pedidoRepository.findByIdLessThanOrderByIdDesc(antes, PageRequest.ofSize(limitarTamanio(tamanio))));
+        Collections.reverse(pedidos);
+        return pedidos;
+    }
+
+     /*
+     * Versiones de los listados que devuelven PedidoResumen (sin productos), para ?view=summary.
+     * Mismo orden, tope de página y cursores que los listados de pedidos completos.
+     */
+    @Transactional(readOnly = true)
+    public List<PedidoResumen> listarResumenes() {
+        return pedidoRepository.findAllResumenes();
+    }
+
+    @Transactional(readOnly = true)
+    public Page<PedidoResumen> listarResumenes(Pageable pageable) {
+        PageRequest pagina = PageRequest.of(pageable.getPageNumber(), limitarTamanio(pageable.getPageSize()), Sort.by("id"));
+        return pedidoRepository.findResumenes(pagina);
+    }
+
+    @Transactional(readOnly = true)
+    public List<PedidoResumen> listarResumenesDespues(Long despues, int tamanio) {
+        return pedidoRepository.findResumenesByIdGreaterThan(despues, PageRequest.ofSize(limitarTamanio(tamanio)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<PedidoResumen> listarResumenesAntes(Long antes, int tamanio) {
+        List<PedidoResumen> resumenes = new ArrayList<>(
+            pedidoRepository.findResumenesByIdLessThan(antes, PageRequest.ofSize(limitarTamanio(tamanio))));
+        Collections.reverse(resumenes);
+        return resumenes;
+    }
+
+    @Transactional(readOnly = true)
+    @LecturaCompartida
+    public List<PedidoResumen> obtenerResumenesPorCliente(Long clienteId) {
+        return pedidoRepository.findResumenesByClienteId(clienteId);
+    }
+
+    @Transactional(readOnly = true)
+    @LecturaCompartida
+    public List<PedidoResumen> obtenerResumenesPorFecha(LocalDate fecha) {
+        return pedidoRepository.findResumenesByFecha(fecha);
+    }
+
+    @Transactional(readOnly = true)
+    @LecturaCompartida
+    public List<PedidoResumen> obtenerResumenesEntreFechas(LocalDate desde, LocalDate hasta) {
+        return pedidoRepository.findResumenesByFechaBetween(desde, hasta);
+    }
+
+    private static int limitarTamanio(int tamanio) {
+        return Math.max(1, Math.min(tamanio, TAMANIO_MAXIMO_PAGINA));
+    }
+
      /*
      * Obtiene todos los pedidos realizados por un cliente específico.
      */
+    @Transactional(readOnly = true)
+    @LecturaCompartida
     public List<Pedido> obtenerPedidosPorCliente(Long clienteId) {
         return pedidoRepository.findByClienteId(clienteId);
     }
@@ -37,7 +187,13 @@ private PedidoRepository pedidoRepository;
      /*
      * Obtiene todos los pedidos realizados en una fecha específica.
      */
+    @Transactional(readOnly = true)
+    @LecturaCompartida
     public List<Pedido> obtenerPedidosPorFecha(LocalDate fecha) {
+        // Las fechas pasadas usan la caché de consultas de Hibernate; la de hoy cambia con cada pedido nuevo
+        if (fecha.isBefore(LocalDate.now())) {
+            return conProductos(pedidoRepository.findHistoricosByFecha(fecha));
+        }
         return pedidoRepository.findByFecha(fecha);
     }
 
@@ -46,22 +202,110 @@ private PedidoRepository pedidoRepository;
      *  desde Fecha de inicio.
      *  hasta Fecha de fin.
      */
+    @Transactional(readOnly = true)
+    @LecturaCompartida
     public List<Pedido> obtenerPedidosEntreFechas(LocalDate desde, LocalDate hasta) {
+        // Igual que obtenerPedidosPorFecha: caché de consultas solo si el rango termina antes de hoy
+        if (hasta.isBefore(LocalDate.now())) {
+            return conProductos(pedidoRepository.findHistoricosByFechaBetween(desde, hasta));
+        }
         return pedidoRepository.findByFechaBetween(desde, hasta);
     }
 
+     /*
+     * Recorre los pedidos entre dos fechas por lotes de TAMANIO_LOTE_EXPORTACION, ordenados por id.
+     * Cada lote se entrega al consumidor mientras sigue en el contexto de persistencia, así sus productos
+     * se cargan de a 50 pedidos por SELECT; después se vacía el contexto, de modo que la memoria usada
+     * no depende del tamaño del rango.
+     * Los pedidos exportados no se guardan en la caché de segundo nivel, para no desalojar los que se leen seguido.
+     */
+    @Transactional(readOnly = true)
+    public void exportarPedidosEntreFechas(LocalDate desde, LocalDate hasta, Consumer<List<Pedido>> consumidorLote) {
+        Session sesion = entityManager.unwrap(Session.class);
+        CacheMode modoAnterior = sesion.getCacheMode();
+        sesion.setCacheMode(CacheMode.GET);
+        try (Stream<Pedido> pedidos = pedidoRepository.streamByFechaBetweenOrderByIdAsc(desde, hasta)) {
+            Iterator<Pedido> iterador = pedidos.iterator();
+            List<Pedido> lote = new ArrayList<>(TAMANIO_LOTE_EXPORTACION);
+            while (iterador.hasNext()) {
+                lote.add(iterador.next());
+                if (lote.size() == TAMANIO_LOTE_EXPORTACION || !iterador.hasNext()) {
+                    consumidorLote.accept(lote);
+                    lote.clear();
+                    entityManager.clear();
+                }
+            }
+        } finally {
+            sesion.setCacheMode(modoAnterior);
+        }
+    }
+
      /*
      * Cuenta la cantidad de pedidos realizados por un cliente específico.
      */
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.CACHE_CONTEO_CLIENTE, key = "#clienteId")
+    @LecturaCompartida
     public long contarPedidosPorCliente(Long clienteId) {
         return pedidoRepository.countByClienteId(clienteId);
     }
 
      /*
-     * Obtiene los últimos 10 pedidos ordenados por fecha descendente.
-     */
+     * Pedidos (con sus productos) de una lista de ids, por id y en el orden de la lista; los ids que no existen
+     * no aparecen. Se consultan con IN (...) de a TAMANIO_BLOQUE_IN ids; los ids repetidos se piden una vez.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Pedido> buscarPorIds(Collection<Long> ids) {
+        List<Long> distintos = List.copyOf(new LinkedHashSet<>(ids));
+        Map<Long, Pedido> encontrados = new HashMap<>();
+        for (List<Long> bloque : bloques(distintos)) {
+            pedidoRepository.findByIdIn(bloque).forEach(p -> encontrados.put(p.getId(), p));
+        }
+        Map<Long, Pedido> pedidos = new LinkedHashMap<>();
+        for (Long id : distintos) {
+            Pedido pedido = encontrados.get(id);
+            if (pedido != null) {
+                pedidos.put(id, pedido);
+            }
+        }
+        return pedidos;
+    }
+
+     /*
+     * Cantidad de pedidos de cada cliente de la lista, en el orden de la lista (0 si no tiene pedidos).
+     * Un solo GROUP BY por cada bloque de TAMANIO_BLOQUE_IN clientes.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Long> contarPedidosPorClientes(Collection<Long> clienteIds) {
+        List<Long> distintos = List.copyOf(new LinkedHashSet<>(clienteIds));
+        Map<Long, Long> cantidades = new LinkedHashMap<>();
+        distintos.forEach(clienteId -> cantidades.put(clienteId, 0L));
+        for (List<Long> bloque : bloques(distintos)) {
+            for (Object[] fila : pedidoRepository.countByClienteIdIn(bloque)) {
+                cantidades.put((Long) fila[0], (Long) fila[1]);
+            }
+        }
+        return cantidades;
+    }
+
+    private static List<List<Long>> bloques(List<Long> ids) {
+        List<List<Long>> bloques = new ArrayList<>();
+        for (int desde = 0; desde < ids.size(); desde += TAMANIO_BLOQUE_IN) {
+            bloques.add(ids.subList(desde, Math.min(desde + TAMANIO_BLOQUE_IN, ids.size())));
+        }
+        return bloques;
+    }
+
+     /*
+     * Obtiene los últimos pedidos (pedidos.ultimos.cantidad, 10 por defecto) ordenados por fecha
+     * descendente y por id a igual fecha. Se responden desde memoria (UltimosPedidosBuffer).
+     * Sin transacción: la mayoría de las llamadas no consulta la base (ni toma conexión de la réplica);
+     * cuando hay que cargar el buffer, este abre la suya.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @LecturaCompartida
     public List<Pedido> obtenerUltimosPedidos() {
-        return pedidoRepository.findTop10ByOrderByFechaDesc();
+        return ultimosPedidosBuffer.obtener();
     }
 
 
@@ -72,10 +316,29 @@ private PedidoRepository pedidoRepository;
      * throws RuntimeException si el pedido no existe.
      */
     public void eliminarPedido(Long id) {
-        if (!pedidoRepository.existsById(id)) {
-            throw new RuntimeException("El pedido con ID " + id + " no existe.");
-            }
-            pedidoRepository.deleteById(id);}
+        eliminarPedido(id, null);
+    }
+
+     /*
+     * Elimina un pedido solo si su versión sigue siendo versionEsperada (null: sin verificar).
+     * throws RuntimeException si el pedido no existe.
+     * throws ObjectOptimisticLockingFailureException si el pedido cambió de versión.
+     */
+    public void eliminarPedido(Long id, Long versionEsperada) {
+        if (versionEsperada == null) {
+            EstadoPedido eliminado = pedidoRepository.findEstadoById(id)
+                .orElseThrow(() -> new RuntimeException("El pedido con ID " + id + " no existe."));
+            pedidoRepository.deleteById(id);
+            eventPublisher.publishEvent(new PedidoEliminadoEvent(id, eliminado));
+            return;
+        }
+        Pedido ped = pedidoRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("El pedido con ID " + id + " no existe."));
+        verificarVersion(ped, versionEsperada);
+        // El DELETE lleva "where version = ?": si otro cambio se confirma antes, falla al hacer commit.
+        pedidoRepository.delete(ped);
+        eventPublisher.publishEvent(new PedidoEliminadoEvent(id, EstadoPedido.de(ped)));
+    }
 
 
      /*
@@ -89,16 +352,211 @@ private PedidoRepository pedidoRepository;
         for (PedidoProducto producto : pedido.getProductos()) {
             producto.setPedido(pedido);
             }
-        return pedidoRepository.save(pedido);
+        catalogoPrecios.actualizarTotal(pedido);
+        EstadoPedido anterior = buscarEstadoAnterior(pedido);
+        completarVersion(pedido);
+        Pedido guardado = pedidoRepository.save(pedido);
+        eventPublisher.publishEvent(new PedidoGuardadoEvent(guardado, anterior));
+        return guardado;
+    }
+
+     /*
+     * Reemplaza los datos y los productos de un pedido existente y recalcula su total.
+     * Los productos se comparan por productoId con los que ya tiene el pedido: solo se actualizan las cantidades
+     * que cambiaron, se insertan los productos nuevos y se eliminan los que ya no vienen. Un pedido grande en el
+     * que cambia una línea genera un solo UPDATE en pedido_productos, no un DELETE y un INSERT por línea.
+     * throws EntityNotFoundException si el pedido no existe.
+     * throws IllegalArgumentException si falta la lista de productos o algún productoId.
+     * throws ProductoSinPrecioException si algún producto no tiene precio.
+     */
+    public Pedido actualizarPedido(Long id, Pedido datos) {
+        return actualizarPedido(id, datos, null);
     }
 
+     /*
+     * Igual que actualizarPedido(id, datos), pero solo si la versión del pedido sigue siendo versionEsperada
+     * (null: sin verificar).
+     * throws ObjectOptimisticLockingFailureException si el pedido cambió de versión.
+     */
+    public Pedido actualizarPedido(Long id, Pedido datos, Long versionEsperada) {
+        Pedido ped = pedidoRepository.findById(id)
+            .orElseThrow(() -> new EntityNotFoundException("Pedido no encontrado con ID: " + id));
+        verificarVersion(ped, versionEsperada);
+        EstadoPedido anterior = EstadoPedido.de(ped);
+        DatosPedido antes = DatosPedido.de(ped);
+
+        ped.setClienteId(datos.getClienteId());
+        ped.setFecha(datos.getFecha());
+        ped.setTotal(datos.getTotal());
+        boolean productosCambiaron = fusionarProductos(ped, cantidadesPorProducto(datos.getProductos()));
+        catalogoPrecios.actualizarTotal(ped);
+        versionarCambioDeProductos(ped, antes, productosCambiaron);
+
+        Pedido guardado = pedidoRepository.save(ped);
+        eventPublisher.publishEvent(new PedidoGuardadoEvent(guardado, anterior));
+        return guardado;
+    }
+
+     /*
+     * Cambia la cantidad de un solo producto del pedido y recalcula el total.
+     * Si el producto no estaba en el pedido se agrega; con cantidad 0 se quita.
+     * Solo se aplica si la versión del pedido sigue siendo versionEsperada (null: sin verificar).
+     * throws EntityNotFoundException si el pedido no existe.
+     * throws ProductoSinPrecioException si el producto no tiene precio.
+     * throws ObjectOptimisticLockingFailureException si el pedido cambió de versión.
+     */
+    public Pedido actualizarProductoPedido(Long id, Long productoId, int cantidad, Long versionEsperada) {
+        Pedido ped = pedidoRepository.findById(id)
+            .orElseThrow(() -> new EntityNotFoundException("Pedido no encontrado con ID: " + id));
+        verificarVersion(ped, versionEsperada);
+        EstadoPedido anterior = EstadoPedido.de(ped);
+        DatosPedido antes = DatosPedido.de(ped);
+
+        PedidoProducto linea = buscarLinea(ped, productoId);
+        boolean productosCambiaron = true;
+        if (cantidad == 0) {
+            productosCambiaron = linea != null && ped.getProductos().remove(linea); // orphanRemoval: un DELETE
+        } else if (linea == null) {
+            ped.getProductos().add(nuevaLinea(ped, productoId, cantidad));
+        } else if (linea.getCantidad() == null || linea.getCantidad() != cantidad) {
+            linea.setCantidad(cantidad);
+        } else {
+            productosCambiaron = false;
+        }
+        catalogoPrecios.actualizarTotal(ped);
+        versionarCambioDeProductos(ped, antes, productosCambiaron);
+
+        Pedido guardado = pedidoRepository.save(ped);
+        eventPublisher.publishEvent(new PedidoGuardadoEvent(guardado, anterior));
+        return guardado;
+    }
+
+    // productoId -> cantidad, en el orden recibido; si un producto se repite vale la última cantidad.
+    private static Map<Long, Integer> cantidadesPorProducto(List<PedidoProducto> productos) {
+        if (productos == null) {
+            throw new IllegalArgumentException("La lista de productos es obligatoria.");
+        }
+        Map<Long, Integer> cantidades = new LinkedHashMap<>();
+        for (PedidoProducto producto : productos) {
+            if (producto.getId() == null || producto.getId().getProductoId() == null) {
+                throw new IllegalArgumentException("Todos los productos deben indicar productoId.");
+            }
+            cantidades.put(producto.getId().getProductoId(), producto.getCantidad());
+        }
+        return cantidades;
+    }
+
+    // Deja en el pedido exactamente los productos de "cantidades", tocando solo las líneas que cambian.
+    // Devuelve true si alguna línea cambió.
+    private static boolean fusionarProductos(Pedido ped, Map<Long, Integer> cantidades) {
+        boolean cambios = false;
+        Map<Long, Integer> pendientes = new LinkedHashMap<>(cantidades);
+        Iterator<PedidoProducto> lineas = ped.getProductos().iterator();
+        while (lineas.hasNext()) {
+            PedidoProducto linea = lineas.next();
+            Long productoId = linea.getId().getProductoId();
+            if (!pendientes.containsKey(productoId)) {
+                lineas.remove(); // orphanRemoval: DELETE solo de las líneas quitadas
+                cambios = true;
+                continue;
+            }
+            Integer cantidad = pendientes.remove(productoId);
+            if (!Objects.equals(linea.getCantidad(), cantidad)) {
+                linea.setCantidad(cantidad); // UPDATE por dirty checking
+                cambios = true;
+            }
+        }
+        for (Map.Entry<Long, Integer> nuevo : pendientes.entrySet()) {
+            ped.getProductos().add(nuevaLinea(ped, nuevo.getKey(), nuevo.getValue()));
+            cambios = true;
+        }
+        return cambios;
+    }
+
+    // Campos propios del pedido; si cambian, Hibernate aumenta la versión al hacer el UPDATE.
+    private record DatosPedido(Long clienteId, LocalDate fecha, double total) {
+        static DatosPedido de(Pedido pedido) {
+            return new DatosPedido(pedido.getClienteId(), pedido.getFecha(), pedido.getTotal());
+        }
+    }
+
+    /*
+     * Los productos son el lado inverso de la relación: modificarlos no aumenta la versión del pedido.
+     * Si cambiaron solo los productos se fuerza el aumento (un UPDATE de la versión al confirmar),
+     * para que el ETag cambie y las escrituras concurrentes se detecten igual.
+     */
+    private void versionarCambioDeProductos(Pedido ped, DatosPedido antes, boolean productosCambiaron) {
+        if (productosCambiaron && antes.equals(DatosPedido.de(ped))) {
+            entityManager.lock(ped, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        }
+    }
+
+    private static void verificarVersion(Pedido ped, Long versionEsperada) {
+        if (versionEsperada != null && !versionEsperada.equals(ped.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Pedido.class, ped.getId());
+        }
+    }
+
+    private static PedidoProducto buscarLinea(Pedido ped, Long productoId) {
+        for (PedidoProducto linea : ped.getProductos()) {
+            if (Objects.equals(linea.getId().getProductoId(), productoId)) {
+                return linea;
+            }
+        }
+        return null;
+    }
+
+    private static PedidoProducto nuevaLinea(Pedido ped, Long productoId, Integer cantidad) {
+        return new PedidoProducto(new PedidoProductoId(ped.getId(), productoId), ped, cantidad);
+    }
+
+     /*
+     * Obtiene un pedido por id, con sus productos. El resultado se guarda en la caché de pedidos;
+     * no debe modificarse el objeto devuelto (para modificar un pedido usar actualizarPedido).
+     */
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.CACHE_PEDIDOS, key = "#id")
+    @LecturaCompartida
     public Pedido findById(Long id) {
-    return pedidoRepository.findById(id)
+    Pedido pedido = pedidoRepository.findById(id)
         .orElseThrow(() -> new EntityNotFoundException("Pedido no encontrado con ID: " + id));
+    Hibernate.initialize(pedido.getProductos());
+    return pedido;
+    }
+
+    // Los pedidos que salen de la caché de segundo nivel no pasan por el join de @EntityGraph y traen los
+    // productos sin inicializar: se cargan acá (desde la caché de la colección, o de a 50 pedidos por SELECT)
+    // porque el resultado se usa fuera de la transacción (caché de pedidos, lecturas compartidas).
+    private static List<Pedido> conProductos(List<Pedido> pedidos) {
+        pedidos.forEach(pedido -> Hibernate.initialize(pedido.getProductos()));
+        return pedidos;
     }
 
     public Pedido save(Pedido pedido) {
-        return pedidoRepository.save(pedido);
+        catalogoPrecios.actualizarTotal(pedido);
+        EstadoPedido anterior = buscarEstadoAnterior(pedido);
+        completarVersion(pedido);
+        Pedido guardado = pedidoRepository.save(pedido);
+        eventPublisher.publishEvent(new PedidoGuardadoEvent(guardado, anterior));
+        return guardado;
+    }
+
+    // Cliente, fecha, total y unidades con que el pedido está guardado hoy en la base (null si es un pedido nuevo).
+    private EstadoPedido buscarEstadoAnterior(Pedido pedido) {
+        if (pedido.getId() == null) {
+            return null;
+        }
+        return pedidoRepository.findEstadoById(pedido.getId()).orElse(null);
+    }
+
+    /*
+     * Un pedido existente que llega sin versión se guarda sobre la versión actual (el último en escribir gana,
+     * como antes de @Version). Si trae versión, Hibernate la compara al guardar y rechaza la escritura si cambió.
+     */
+    private void completarVersion(Pedido pedido) {
+        if (pedido.getId() != null && pedido.getVersion() == null) {
+            pedidoRepository.findVersionById(pedido.getId()).ifPresent(pedido::setVersion);
+        }
     }
 
 }
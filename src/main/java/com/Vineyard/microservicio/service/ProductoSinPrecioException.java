@@ -0,0 +1,18 @@
+package com.Vineyard.microservicio.service;
+
+/*
+ * Se lanza al calcular el total de un pedido que incluye un producto sin precio en el catálogo.
+ */
+public class ProductoSinPrecioException extends RuntimeException {
+
+    private final Long productoId;
+
+    public ProductoSinPrecioException(Long productoId) {
+        super("El producto con ID " + productoId + " no tiene precio en el catálogo.");
+        this.productoId = productoId;
+    }
+
+    public Long getProductoId() {
+        return productoId;
+    }
+}
@@ -0,0 +1,84 @@
+package com.Vineyard.microservicio.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Vineyard.microservicio.event.DestinoEventos;
+import com.Vineyard.microservicio.event.EventoPedido;
+
+/*
+ * Vacía el outbox (pedido_evento) cada pedidos.outbox.intervalo: lee hasta pedidos.outbox.lote eventos en orden
+ * de id, los entrega al DestinoEventos y los borra; repite mientras encuentre lotes completos.
+ *
+ * La entrega es al menos una vez: si el destino acepta el lote y el borrado falla, el lote se vuelve a enviar.
+ * Un evento confirmado tarde con un id menor que otros ya enviados sale en la pasada siguiente.
+ * Debe correr en una sola instancia (pedidos.outbox.relay.habilitado=false en las demás).
+ */
+@Component
+@ConditionalOnExpression("${pedidos.outbox.habilitado:false} and ${pedidos.outbox.relay.habilitado:true}")
+public class RelayOutboxPedidos {
+
+    private static final Logger log = LoggerFactory.getLogger(RelayOutboxPedidos.class);
+
+    private static final String PENDIENTES =
+        "select id, tipo, pedido_id, cliente_id, registrado, datos from pedido_evento order by id fetch first ? rows only";
+
+    private static final RowMapper<EventoPedido> EVENTO = (rs, fila) -> new EventoPedido(
+        rs.getLong("id"),
+        EventoPedido.Tipo.valueOf(rs.getString("tipo")),
+        rs.getObject("pedido_id", Long.class),
+        rs.getObject("cliente_id", Long.class),
+        rs.getTimestamp("registrado").toInstant(),
+        rs.getString("datos"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DestinoEventos destino;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanioLote;
+
+    public RelayOutboxPedidos(PlatformTransactionManager transactionManager,
+            @Value("${pedidos.outbox.lote:100}") int tamanioLote) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanioLote = tamanioLote;
+    }
+
+     /*
+     * Envía los eventos pendientes por lotes. Si el destino falla se deja de enviar hasta la próxima pasada,
+     * sin borrar el lote.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.outbox.intervalo:PT1S}")
+    public void publicarPendientes() {
+        List<EventoPedido> lote;
+        do {
+            lote = jdbcTemplate.query(PENDIENTES, EVENTO, tamanioLote);
+            if (lote.isEmpty()) {
+                return;
+            }
+            try {
+                destino.publicar(lote);
+            } catch (Exception e) {
+                log.warn("No se pudieron publicar {} eventos del outbox desde el id {}; se reintenta en la próxima pasada",
+                    lote.size(), lote.get(0).id(), e);
+                return;
+            }
+            List<Object[]> ids = lote.stream().map(evento -> new Object[] {evento.id()}).toList();
+            transactionTemplate.executeWithoutResult(estado ->
+                jdbcTemplate.batchUpdate("delete from pedido_evento where id = ?", ids));
+        } while (lote.size() == tamanioLote);
+    }
+}
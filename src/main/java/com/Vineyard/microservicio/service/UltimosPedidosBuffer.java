@@ -0,0 +1,211 @@
+package com.Vineyard.microservicio.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Vineyard.microservicio.event.PedidoEliminadoEvent;
+import com.Vineyard.microservicio.event.PedidoGuardadoEvent;
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.repository.PedidoRepository;
+
+/*
+ * Mantiene en memoria los pedidos más recientes (por fecha descendente y, a igual fecha, por id descendente)
+ * para responder GET /api/v1/pedidos/ultimos sin consultar la base.
+ *
+ * El estado es un arreglo ordenado e inmutable que se reemplaza con compareAndSet: las lecturas no bloquean
+ * y las escrituras reintentan si otra escritura ganó la carrera. Se guardan hasta el doble de los pedidos
+ * que se devuelven, para que eliminar uno reciente no obligue a releer la base; si aun así quedan menos de
+ * los necesarios, el estado se descarta y la próxima lectura lo recarga.
+ *
+ * Se carga al iniciar la aplicación y se actualiza con los eventos de PedidoService, después del commit.
+ */
+@Component
+public class UltimosPedidosBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(UltimosPedidosBuffer.class);
+
+    private static final Comparator<Pedido> MAS_RECIENTE_PRIMERO =
+        Comparator.comparing(Pedido::getFecha).thenComparing(Pedido::getId).reversed();
+
+    /*
+     * pedidos: ordenados del más reciente al más antiguo.
+     * hayMas: la base puede tener pedidos más antiguos que el último del arreglo.
+     */
+    private record Estado(Pedido[] pedidos, boolean hayMas) {
+    }
+
+    // Lecturas de la base antes de responder sin guardar el resultado
+    private static final int INTENTOS_CARGA = 3;
+
+    private final int cantidad;
+    private final int capacidad;
+
+    // null: hay que cargar desde la base
+    private final AtomicReference<Estado> estado = new AtomicReference<>();
+
+    // Cuenta las escrituras; una carga solo se instala si no hubo escrituras mientras consultaba la base
+    private final AtomicLong modificaciones = new AtomicLong();
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public UltimosPedidosBuffer(@Value("${pedidos.ultimos.cantidad:10}") int cantidad,
+            PlatformTransactionManager transactionManager) {
+        this.cantidad = cantidad;
+        this.capacidad = cantidad * 2;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+     /*
+     * Devuelve los últimos pedidos, del más reciente al más antiguo.
+     */
+    public List<Pedido> obtener() {
+        Estado actual = estado.get();
+        if (actual == null) {
+            actual = cargar();
+        }
+        int hasta = Math.min(cantidad, actual.pedidos().length);
+        return Collections.unmodifiableList(Arrays.asList(actual.pedidos()).subList(0, hasta));
+    }
+
+     /*
+     * Descarta el contenido: la próxima lectura vuelve a la base.
+     */
+    public void invalidar() {
+        modificaciones.incrementAndGet();
+        estado.set(null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlIniciar() {
+        try {
+            cargar();
+        } catch (RuntimeException e) {
+            // Sin base disponible al iniciar: se reintenta en la primera lectura.
+            log.warn("No se pudieron cargar los últimos pedidos al iniciar: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void pedidoGuardado(PedidoGuardadoEvent evento) {
+        Pedido pedido = evento.pedido();
+        if (pedido.getId() == null || pedido.getFecha() == null) {
+            // No se puede ubicar en el orden: se recarga desde la base en la próxima lectura.
+            invalidar();
+            return;
+        }
+        modificaciones.incrementAndGet();
+        Estado actual;
+        Estado nuevo;
+        do {
+            actual = estado.get();
+            if (actual == null) {
+                return;
+            }
+            nuevo = conPedido(actual, pedido);
+        } while (!estado.compareAndSet(actual, nuevo));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void pedidoEliminado(PedidoEliminadoEvent evento) {
+        modificaciones.incrementAndGet();
+        Estado actual;
+        Estado nuevo;
+        do {
+            actual = estado.get();
+            if (actual == null) {
+                return;
+            }
+            nuevo = sinPedido(actual, evento.id());
+        } while (!estado.compareAndSet(actual, nuevo));
+    }
+
+    private Estado cargar() {
+        Estado cargado = null;
+        for (int intento = 0; intento < INTENTOS_CARGA; intento++) {
+            long version = modificaciones.get();
+            List<Pedido> pedidos = transactionTemplate.execute(tx -> {
+                List<Pedido> recientes = pedidoRepository.findAllByOrderByFechaDescIdDesc(PageRequest.of(0, capacidad));
+                // Los productos se cargan antes de cerrar la transacción: el estado vive fuera de ella.
+                recientes.forEach(p -> Hibernate.initialize(p.getProductos()));
+                return recientes;
+            });
+            cargado = new Estado(pedidos.toArray(new Pedido[0]), pedidos.size() == capacidad);
+            if (modificaciones.get() == version && estado.compareAndSet(null, cargado)) {
+                return cargado;
+            }
+            Estado actual = estado.get();
+            if (actual != null) {
+                return actual;
+            }
+            // Hubo escrituras durante la consulta: el resultado puede no incluirlas, se vuelve a leer.
+        }
+        // Con escrituras continuas se responde con la última lectura sin guardarla.
+        return cargado;
+    }
+
+    private Estado conPedido(Estado actual, Pedido pedido) {
+        List<Pedido> pedidos = new ArrayList<>(actual.pedidos().length + 1);
+        boolean estaba = false;
+        for (Pedido p : actual.pedidos()) {
+            if (Objects.equals(p.getId(), pedido.getId())) {
+                estaba = true;
+            } else {
+                pedidos.add(p);
+            }
+        }
+
+        int posicion = Collections.binarySearch(pedidos, pedido, MAS_RECIENTE_PRIMERO);
+        posicion = posicion < 0 ? -posicion - 1 : posicion;
+        boolean hayMas = actual.hayMas();
+        if (posicion < pedidos.size() || !hayMas) {
+            pedidos.add(posicion, pedido);
+        } else {
+            // Es más antiguo que todo lo guardado y hay pedidos intermedios en la base que no conocemos.
+            hayMas = true;
+        }
+        if (pedidos.size() > capacidad) {
+            pedidos.remove(pedidos.size() - 1);
+            hayMas = true;
+        }
+        if (estaba && pedidos.size() < cantidad && hayMas) {
+            return null;
+        }
+        return new Estado(pedidos.toArray(new Pedido[0]), hayMas);
+    }
+
+    private Estado sinPedido(Estado actual, Long id) {
+        Pedido[] pedidos = Arrays.stream(actual.pedidos())
+            .filter(p -> !Objects.equals(p.getId(), id))
+            .toArray(Pedido[]::new);
+        if (pedidos.length == actual.pedidos().length) {
+            return actual;
+        }
+        if (pedidos.length < cantidad && actual.hayMas()) {
+            return null;
+        }
+        return new Estado(pedidos, actual.hayMas());
+    }
+}
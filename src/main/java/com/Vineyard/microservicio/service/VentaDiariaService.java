@@ -0,0 +1,369 @@
+package com.Vineyard.microservicio.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Vineyard.microservicio.dto.ClienteTop;
+import com.Vineyard.microservicio.dto.ResumenVentas;
+import com.Vineyard.microservicio.dto.VentaDia;
+import com.Vineyard.microservicio.event.PedidoEliminadoEvent;
+import com.Vineyard.microservicio.event.PedidoGuardadoEvent;
+import com.Vineyard.microservicio.model.EstadoPedido;
+import com.Vineyard.microservicio.repository.VentaDiariaClienteRepository;
+import com.Vineyard.microservicio.repository.VentaDiariaRepository;
+
+/*
+ * Resumen de ventas por día (venta_diaria) y por cliente y día (venta_diaria_cliente):
+ * cantidad de pedidos, unidades e ingresos.
+ *
+ * Se mantiene de forma incremental con los eventos de PedidoService y de la carga masiva. Los eventos se
+ * escuchan dentro de la transacción que guarda el pedido; las diferencias se acumulan por día y cliente y se
+ * aplican una sola vez antes del commit, así que el resumen se confirma o se revierte junto con los pedidos
+ * y una carga masiva de muchos pedidos del mismo día escribe una fila, no una por pedido.
+ *
+ * Cada diferencia se aplica con UPDATE ... SET pedidos = pedidos + ? (atómico en la base, sin leer antes);
+ * si la fila no existe se inserta, y si otra transacción la insertó primero se repite el UPDATE.
+ *
+ * reconstruir() recalcula un rango desde las tablas de pedidos: sirve para cargar el histórico la primera vez
+ * (POST /api/v1/pedidos/ventas-diarias/reconstruir) y, si se configura pedidos.ventas.reconstruccion.cron,
+ * para recalcular todo periódicamente.
+ */
+@Service
+public class VentaDiariaService {
+
+    private static final Logger log = LoggerFactory.getLogger(VentaDiariaService.class);
+
+    // Días por transacción al reconstruir
+    private static final int DIAS_POR_LOTE_RECONSTRUCCION = 31;
+
+    // Clientes que puede devolver topClientes
+    public static final int MAXIMO_TOP = 100;
+
+    /*
+     * Orden del top de clientes: por cantidad de pedidos o por ingresos; el otro valor desempata y, si también
+     * coincide, va primero el cliente de menor id.
+     */
+    public enum Criterio {
+        PEDIDOS(Comparator.comparingLong(ClienteTop::getPedidos).reversed()
+            .thenComparing(Comparator.comparingDouble(ClienteTop::getIngresos).reversed())),
+        INGRESOS(Comparator.comparingDouble(ClienteTop::getIngresos).reversed()
+            .thenComparing(Comparator.comparingLong(ClienteTop::getPedidos).reversed()));
+
+        private final Comparator<ClienteTop> orden;
+
+        Criterio(Comparator<ClienteTop> orden) {
+            this.orden = orden.thenComparing(ClienteTop::getClienteId);
+        }
+
+        // Del mejor al peor
+        public Comparator<ClienteTop> orden() {
+            return orden;
+        }
+    }
+
+    private static final String ACTUALIZAR_DIA =
+        "update venta_diaria set pedidos = pedidos + ?, unidades = unidades + ?, ingresos = ingresos + ? where fecha = ?";
+    private static final String INSERTAR_DIA =
+        "insert into venta_diaria (pedidos, unidades, ingresos, fecha) values (?, ?, ?, ?)";
+    private static final String ACTUALIZAR_CLIENTE =
+        "update venta_diaria_cliente set pedidos = pedidos + ?, unidades = unidades + ?, ingresos = ingresos + ? "
+            + "where fecha = ? and cliente_id = ?";
+    private static final String INSERTAR_CLIENTE =
+        "insert into venta_diaria_cliente (pedidos, unidades, ingresos, fecha, cliente_id) values (?, ?, ?, ?, ?)";
+
+    // Unidades por pedido, solo de los pedidos del rango
+    private static final String UNIDADES_POR_PEDIDO =
+        "(select pp.pedido_id, sum(pp.cantidad) unidades from pedido_productos pp join pedido x on x.id = pp.pedido_id "
+            + "where x.fecha between ? and ? group by pp.pedido_id) u on u.pedido_id = p.id ";
+    private static final String RECONSTRUIR_DIA =
+        "insert into venta_diaria (fecha, pedidos, unidades, ingresos) "
+            + "select p.fecha, count(*), coalesce(sum(u.unidades), 0), coalesce(sum(p.total), 0) from pedido p left join "
+            + UNIDADES_POR_PEDIDO + "where p.fecha between ? and ? group by p.fecha";
+    private static final String RECONSTRUIR_CLIENTE =
+        "insert into venta_diaria_cliente (fecha, cliente_id, pedidos, unidades, ingresos) "
+            + "select p.fecha, p.cliente_id, count(*), coalesce(sum(u.unidades), 0), coalesce(sum(p.total), 0) from pedido p left join "
+            + UNIDADES_POR_PEDIDO + "where p.fecha between ? and ? group by p.fecha, p.cliente_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VentaDiariaRepository ventaDiariaRepository;
+
+    @Autowired
+    private VentaDiariaClienteRepository ventaDiariaClienteRepository;
+
+    // null salvo con pedidos.top.memoria=true
+    @Autowired(required = false)
+    private VentasHoyPorCliente ventasHoyPorCliente;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public VentaDiariaService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+     /*
+     * Ventas entre dos fechas (inclusive), de todos los clientes o de uno. Lee una fila por día con ventas.
+     */
+    public ResumenVentas consultar(LocalDate desde, LocalDate hasta, Long clienteId) {
+        List<VentaDia> dias = new ArrayList<>();
+        if (clienteId == null) {
+            ventaDiariaRepository.findByFechaBetweenOrderByFechaAsc(desde, hasta).forEach(v ->
+                agregarDia(dias, v.getFecha(), v.getPedidos(), v.getUnidades(), v.getIngresos()));
+        } else {
+            ventaDiariaClienteRepository.findByIdClienteIdAndIdFechaBetweenOrderByIdFechaAsc(clienteId, desde, hasta).forEach(v ->
+                agregarDia(dias, v.getId().getFecha(), v.getPedidos(), v.getUnidades(), v.getIngresos()));
+        }
+
+        long pedidos = 0;
+        long unidades = 0;
+        double ingresos = 0;
+        for (VentaDia dia : dias) {
+            pedidos += dia.getPedidos();
+            unidades += dia.getUnidades();
+            ingresos += dia.getIngresos();
+        }
+        return new ResumenVentas(desde, hasta, clienteId, pedidos, unidades, redondear(ingresos), dias);
+    }
+
+     /*
+     * Los k clientes con más pedidos (o más ingresos) entre dos fechas (inclusive), del primero al último.
+     * Si el rango es solo el día de hoy se responde desde memoria (VentasHoyPorCliente); si no, la base agrupa
+     * venta_diaria_cliente por cliente y devuelve los primeros k.
+     */
+    public List<ClienteTop> topClientes(LocalDate desde, LocalDate hasta, int k, Criterio criterio) {
+        List<ClienteTop> top;
+        LocalDate hoy = LocalDate.now();
+        if (ventasHoyPorCliente != null && desde.equals(hoy) && hasta.equals(hoy)) {
+            top = ventasHoyPorCliente.top(k, criterio);
+        } else if (criterio == Criterio.INGRESOS) {
+            top = ventaDiariaClienteRepository.findTopPorIngresos(desde, hasta, PageRequest.of(0, k));
+        } else {
+            top = ventaDiariaClienteRepository.findTopPorPedidos(desde, hasta, PageRequest.of(0, k));
+        }
+        top.forEach(cliente -> cliente.setIngresos(redondear(cliente.getIngresos())));
+        return top;
+    }
+
+    // Los días que quedaron sin pedidos (todos eliminados) no se informan.
+    private static void agregarDia(List<VentaDia> dias, LocalDate fecha, long pedidos, long unidades, double ingresos) {
+        if (pedidos != 0) {
+            dias.add(new VentaDia(fecha, pedidos, unidades, redondear(ingresos)));
+        }
+    }
+
+    private static double redondear(double importe) {
+        return Math.round(importe * 100) / 100.0;
+    }
+
+    @EventListener
+    public void pedidoGuardado(PedidoGuardadoEvent evento) {
+        Diferencias diferencias = diferenciasDeLaTransaccion();
+        if (evento.anterior() != null) {
+            diferencias.sumar(evento.anterior(), -1);
+        }
+        diferencias.sumar(EstadoPedido.de(evento.pedido()), 1);
+        aplicarSiNoHayTransaccion(diferencias);
+    }
+
+    @EventListener
+    public void pedidoEliminado(PedidoEliminadoEvent evento) {
+        Diferencias diferencias = diferenciasDeLaTransaccion();
+        if (evento.eliminado() != null) {
+            diferencias.sumar(evento.eliminado(), -1);
+        }
+        aplicarSiNoHayTransaccion(diferencias);
+    }
+
+     /*
+     * Recalcula el resumen entre dos fechas (inclusive) a partir de los pedidos guardados,
+     * en transacciones de DIAS_POR_LOTE_RECONSTRUCCION días.
+     */
+    public void reconstruir(LocalDate desde, LocalDate hasta) {
+        LocalDate inicio = desde;
+        while (!inicio.isAfter(hasta)) {
+            LocalDate inicioLote = inicio;
+            LocalDate finLote = inicio.plusDays(DIAS_POR_LOTE_RECONSTRUCCION - 1L);
+            LocalDate fin = finLote.isAfter(hasta) ? hasta : finLote;
+            transactionTemplate.executeWithoutResult(estado -> {
+                jdbcTemplate.update("delete from venta_diaria where fecha between ? and ?", inicioLote, fin);
+                jdbcTemplate.update("delete from venta_diaria_cliente where fecha between ? and ?", inicioLote, fin);
+                jdbcTemplate.update(RECONSTRUIR_DIA, inicioLote, fin, inicioLote, fin);
+                jdbcTemplate.update(RECONSTRUIR_CLIENTE, inicioLote, fin, inicioLote, fin);
+            });
+            inicio = fin.plusDays(1);
+        }
+    }
+
+     /*
+     * Recalcula el resumen de todas las fechas con pedidos.
+     * Desactivado por defecto; se activa con pedidos.ventas.reconstruccion.cron.
+     */
+    @Scheduled(cron = "${pedidos.ventas.reconstruccion.cron:-}")
+    public void reconstruirTodo() {
+        Map<String, Object> rango = jdbcTemplate.queryForMap("select min(fecha) desde, max(fecha) hasta from pedido");
+        LocalDate desde = aFecha(rango.get("desde"));
+        LocalDate hasta = aFecha(rango.get("hasta"));
+        if (desde != null && hasta != null) {
+            reconstruir(desde, hasta);
+            log.info("Resumen de ventas reconstruido entre {} y {}", desde, hasta);
+        }
+    }
+
+    private static LocalDate aFecha(Object valor) {
+        if (valor instanceof java.sql.Date fecha) {
+            return fecha.toLocalDate();
+        }
+        if (valor instanceof java.sql.Timestamp instante) {
+            return instante.toLocalDateTime().toLocalDate();
+        }
+        return (LocalDate) valor;
+    }
+
+    // Diferencias de la transacción actual; se aplican antes del commit (ver Diferencias.beforeCommit).
+    private Diferencias diferenciasDeLaTransaccion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Diferencias();
+        }
+        Diferencias diferencias = (Diferencias) TransactionSynchronizationManager.getResource(this);
+        if (diferencias == null) {
+            diferencias = new Diferencias();
+            TransactionSynchronizationManager.bindResource(this, diferencias);
+            TransactionSynchronizationManager.registerSynchronization(diferencias);
+        }
+        return diferencias;
+    }
+
+    private void aplicarSiNoHayTransaccion(Diferencias diferencias) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            diferencias.iniciarEscritura();
+            boolean escritas = false;
+            try {
+                diferencias.aplicar();
+                escritas = true;
+            } finally {
+                diferencias.terminarEscritura(escritas);
+            }
+        }
+    }
+
+    private record ClaveCliente(Long clienteId, LocalDate fecha) {
+    }
+
+    private static final class Diferencia {
+        long pedidos;
+        long unidades;
+        double ingresos;
+
+        void sumar(EstadoPedido pedido, int signo) {
+            pedidos += signo;
+            unidades += signo * pedido.unidades();
+            ingresos += signo * pedido.total();
+        }
+
+        boolean esCero() {
+            return pedidos == 0 && unidades == 0 && ingresos == 0;
+        }
+    }
+
+    /*
+     * Diferencias acumuladas en una transacción. Las claves se recorren ordenadas para que dos transacciones
+     * bloqueen las filas del resumen en el mismo orden.
+     * Las diferencias por cliente se pasan a VentasHoyPorCliente al terminar la transacción, si se confirmó; desde
+     * antes de escribirlas hasta entonces, VentasHoyPorCliente no instala cargas de venta_diaria_cliente.
+     */
+    private final class Diferencias implements TransactionSynchronization {
+
+        private boolean escrituraIniciada;
+
+        private final Map<LocalDate, Diferencia> porDia = new TreeMap<>();
+        private final Map<ClaveCliente, Diferencia> porCliente = new TreeMap<>(
+            Comparator.comparing(ClaveCliente::clienteId).thenComparing(ClaveCliente::fecha));
+
+        void sumar(EstadoPedido pedido, int signo) {
+            if (pedido.fecha() == null || pedido.clienteId() == null) {
+                return;
+            }
+            porDia.computeIfAbsent(pedido.fecha(), f -> new Diferencia()).sumar(pedido, signo);
+            porCliente.computeIfAbsent(new ClaveCliente(pedido.clienteId(), pedido.fecha()), c -> new Diferencia())
+                .sumar(pedido, signo);
+        }
+
+        void aplicar() {
+            porDia.forEach((fecha, d) -> {
+                if (!d.esCero()) {
+                    actualizarOInsertar(ACTUALIZAR_DIA, INSERTAR_DIA, d.pedidos, d.unidades, d.ingresos, fecha);
+                }
+            });
+            porCliente.forEach((clave, d) -> {
+                if (!d.esCero()) {
+                    actualizarOInsertar(ACTUALIZAR_CLIENTE, INSERTAR_CLIENTE, d.pedidos, d.unidades, d.ingresos,
+                        clave.fecha(), clave.clienteId());
+                }
+            });
+            porDia.clear();
+        }
+
+        void iniciarEscritura() {
+            if (ventasHoyPorCliente != null && !escrituraIniciada) {
+                escrituraIniciada = true;
+                ventasHoyPorCliente.escrituraIniciada();
+            }
+        }
+
+        void terminarEscritura(boolean confirmada) {
+            if (escrituraIniciada) {
+                escrituraIniciada = false;
+                if (confirmada) {
+                    porCliente.forEach((clave, d) -> ventasHoyPorCliente.sumar(clave.clienteId(), clave.fecha(),
+                        d.pedidos, d.unidades, d.ingresos));
+                }
+                ventasHoyPorCliente.escrituraTerminada();
+            }
+            porCliente.clear();
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            iniciarEscritura();
+            aplicar();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(VentaDiariaService.this);
+            terminarEscritura(status == STATUS_COMMITTED);
+        }
+    }
+
+    private void actualizarOInsertar(String actualizar, String insertar, Object... parametros) {
+        if (jdbcTemplate.update(actualizar, parametros) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(insertar, parametros);
+        } catch (DuplicateKeyException e) {
+            // Otra transacción insertó la fila entre el UPDATE y el INSERT: ahora el UPDATE la encuentra.
+            jdbcTemplate.update(actualizar, parametros);
+        }
+    }
+}
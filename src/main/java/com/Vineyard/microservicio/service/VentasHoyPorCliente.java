@@ -0,0 +1,179 @@
+package com.Vineyard.microservicio.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Vineyard.microservicio.dto.ClienteTop;
+import com.Vineyard.microservicio.repository.VentaDiariaClienteRepository;
+
+/*
+ * Pedidos, unidades e ingresos de hoy por cliente, en memoria, para responder el top de clientes del día sin
+ * consultar la base (ver VentaDiariaService.topClientes).
+ *
+ * Se carga desde venta_diaria_cliente y después VentaDiariaService le pasa, al terminar cada transacción, las
+ * mismas diferencias por cliente que escribió en el resumen antes del commit. Al cambiar el día se vuelve a cargar;
+ * además se recarga cada pedidos.top.recarga para corregir cualquier diferencia con el resumen.
+ *
+ * Una carga solo se instala si ninguna escritura del resumen quedó sin terminar ni terminó mientras consultaba la
+ * base: una transacción ya confirmada cuyas diferencias todavía no se sumaron aparece en la lectura y se volvería
+ * a sumar sobre ella.
+ *
+ * Solo ve las escrituras de esta instancia: con varias instancias el top quedaría mal hasta la próxima recarga, por
+ * eso se activa explícitamente con pedidos.top.memoria=true y solo en despliegues de una instancia.
+ */
+@Component
+@ConditionalOnProperty(name = "pedidos.top.memoria", havingValue = "true")
+public class VentasHoyPorCliente {
+
+    private static final Logger log = LoggerFactory.getLogger(VentasHoyPorCliente.class);
+
+    // Lecturas de la base antes de responder sin guardar el resultado
+    private static final int INTENTOS_CARGA = 3;
+
+    private record Acumulado(long pedidos, long unidades, double ingresos) {
+
+        Acumulado mas(Acumulado otro) {
+            return new Acumulado(pedidos + otro.pedidos, unidades + otro.unidades, ingresos + otro.ingresos);
+        }
+    }
+
+    private record Dia(LocalDate fecha, ConcurrentHashMap<Long, Acumulado> clientes) {
+    }
+
+    @Autowired
+    private VentaDiariaClienteRepository ventaDiariaClienteRepository;
+
+    // null: hay que cargar desde la base
+    private final AtomicReference<Dia> dia = new AtomicReference<>();
+
+    // Escrituras terminadas; una carga solo se instala si no terminó ninguna mientras consultaba la base
+    private final AtomicLong modificaciones = new AtomicLong();
+
+    // Escrituras del resumen entre escrituraIniciada y escrituraTerminada
+    private final AtomicInteger pendientes = new AtomicInteger();
+
+    // De lectura y escritura a propósito: la carga va a la base principal (no a la réplica, que puede estar
+    // atrasada) para que incluya los pedidos cuyos eventos ya llegaron.
+    private final TransactionTemplate transactionTemplate;
+
+    public VentasHoyPorCliente(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+     /*
+     * Los k clientes de hoy con más pedidos (o ingresos), del primero al último. Recorre los clientes del día
+     * una vez y guarda solo los k mejores en un heap.
+     */
+    public List<ClienteTop> top(int k, VentaDiariaService.Criterio criterio) {
+        Dia actual = actual();
+        PriorityQueue<ClienteTop> mejores = new PriorityQueue<>(k + 1, criterio.orden().reversed());
+        actual.clientes().forEach((clienteId, acumulado) -> {
+            if (acumulado.pedidos() > 0) {
+                mejores.offer(new ClienteTop(clienteId, acumulado.pedidos(), acumulado.unidades(), acumulado.ingresos()));
+                if (mejores.size() > k) {
+                    mejores.poll();
+                }
+            }
+        });
+        List<ClienteTop> top = new ArrayList<>(mejores);
+        top.sort(criterio.orden());
+        return top;
+    }
+
+     /*
+     * Descarta el contenido: la próxima lectura vuelve a la base.
+     */
+    public void invalidar() {
+        modificaciones.incrementAndGet();
+        dia.set(null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlIniciar() {
+        try {
+            actual();
+        } catch (RuntimeException e) {
+            // Sin base disponible al iniciar: se reintenta en la primera lectura.
+            log.warn("No se pudieron cargar las ventas de hoy por cliente al iniciar: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pedidos.top.recarga:PT5M}", initialDelayString = "${pedidos.top.recarga:PT5M}")
+    public void recargar() {
+        invalidar();
+    }
+
+     /*
+     * VentaDiariaService va a escribir diferencias en venta_diaria_cliente (antes del commit). Hasta la llamada a
+     * escrituraTerminada no se instala ninguna carga.
+     */
+    void escrituraIniciada() {
+        pendientes.incrementAndGet();
+    }
+
+     /*
+     * Suma al cliente una diferencia ya confirmada en el resumen; se ignora si no es de hoy.
+     */
+    void sumar(Long clienteId, LocalDate fecha, long pedidos, long unidades, double ingresos) {
+        Dia actual = dia.get();
+        if (actual != null && actual.fecha().equals(fecha)) {
+            actual.clientes().merge(clienteId, new Acumulado(pedidos, unidades, ingresos), Acumulado::mas);
+        }
+    }
+
+     /*
+     * La escritura terminó (confirmada o revertida) y sus diferencias ya se sumaron.
+     */
+    void escrituraTerminada() {
+        // En este orden: quien vea pendientes en 0 ya ve el nuevo valor de modificaciones
+        modificaciones.incrementAndGet();
+        pendientes.decrementAndGet();
+    }
+
+    private Dia actual() {
+        LocalDate hoy = LocalDate.now();
+        Dia actual = dia.get();
+        if (actual != null && actual.fecha().equals(hoy)) {
+            return actual;
+        }
+        Dia cargado = null;
+        for (int intento = 0; intento < INTENTOS_CARGA; intento++) {
+            long version = modificaciones.get();
+            cargado = new Dia(hoy, new ConcurrentHashMap<>());
+            List<ClienteTop> clientes = transactionTemplate.execute(tx ->
+                ventaDiariaClienteRepository.findTopPorPedidos(hoy, hoy, Pageable.unpaged()));
+            for (ClienteTop cliente : clientes) {
+                cargado.clientes().put(cliente.getClienteId(),
+                    new Acumulado(cliente.getPedidos(), cliente.getUnidades(), cliente.getIngresos()));
+            }
+            if (pendientes.get() == 0 && modificaciones.get() == version && dia.compareAndSet(actual, cargado)) {
+                return cargado;
+            }
+            actual = dia.get();
+            if (actual != null && actual.fecha().equals(hoy)) {
+                return actual;
+            }
+            // Hubo escrituras durante la consulta: el resultado puede incluirlas o no, se vuelve a leer.
+        }
+        // Con escrituras continuas se responde con la última lectura sin guardarla.
+        return cargado;
+    }
+}
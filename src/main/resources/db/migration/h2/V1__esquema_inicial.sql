@@ -0,0 +1,16 @@
+-- Esquema que generaba Hibernate con ddl-auto antes de las migraciones (id por IDENTITY)
+create table pedido (
+    id bigint generated by default as identity,
+    cliente_id bigint not null,
+    fecha date not null,
+    total double precision,
+    constraint pedido_pk primary key (id)
+);
+
+create table pedido_productos (
+    pedido_id bigint not null,
+    producto_id bigint not null,
+    cantidad integer,
+    constraint pedido_productos_pk primary key (pedido_id, producto_id),
+    constraint pedido_productos_pedido_fk foreign key (pedido_id) references pedido (id)
+);
@@ -0,0 +1,34 @@
+-- Ids por secuencia en bloques de 50 (ver Pedido.id) en lugar de IDENTITY. Como en Oracle, el primer valor es
+-- max(id) + 50: Hibernate reparte de valor - 49 a valor, por encima de los ids existentes.
+alter table pedido alter column id drop identity;
+create sequence pedido_seq start with 50 increment by 50;
+alter sequence pedido_seq restart with (select coalesce(max(id), 0) + 50 from pedido);
+
+-- Bloqueo optimista (ver Pedido.version)
+alter table pedido add column version bigint default 0;
+
+-- Catálogo de precios (ver CatalogoPrecios)
+create table precio_producto (
+    producto_id bigint not null,
+    precio double precision not null,
+    constraint precio_producto_pk primary key (producto_id)
+);
+
+-- Resúmenes de ventas (ver VentaDiariaService)
+create table venta_diaria (
+    fecha date not null,
+    pedidos bigint not null,
+    unidades bigint not null,
+    ingresos double precision not null,
+    constraint venta_diaria_pk primary key (fecha)
+);
+
+-- La clave empieza por cliente_id: las fechas de un cliente son un rango de la clave
+create table venta_diaria_cliente (
+    cliente_id bigint not null,
+    fecha date not null,
+    pedidos bigint not null,
+    unidades bigint not null,
+    ingresos double precision not null,
+    constraint venta_diaria_cliente_pk primary key (cliente_id, fecha)
+);
@@ -0,0 +1,11 @@
+-- Outbox de eventos de pedidos (ver OutboxPedidos): se escribe en la transacción del pedido
+-- y RelayOutboxPedidos borra cada fila después de publicarla.
+create table pedido_evento (
+    id bigint generated by default as identity,
+    tipo varchar(20) not null,
+    pedido_id bigint not null,
+    cliente_id bigint,
+    registrado timestamp not null,
+    datos clob not null,
+    constraint pedido_evento_pk primary key (id)
+);
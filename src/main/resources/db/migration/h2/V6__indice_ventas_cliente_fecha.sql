@@ -0,0 +1,4 @@
+-- Top de clientes por rango de fechas (ver VentaDiariaClienteRepository.findTop*): la clave primaria empieza por
+-- cliente_id, así que el rango de fechas de todos los clientes necesita su propio índice. Incluye las columnas
+-- que se suman para que la consulta no lea la tabla.
+create index venta_diaria_cliente_fecha_idx on venta_diaria_cliente (fecha, cliente_id, pedidos, unidades, ingresos);
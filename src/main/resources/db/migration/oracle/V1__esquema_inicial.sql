@@ -0,0 +1,17 @@
+-- Esquema que generaba Hibernate con ddl-auto antes de las migraciones (id por IDENTITY).
+-- En una base existente no se ejecuta: baseline-on-migrate la marca en esta versión.
+create table pedido (
+    id number(19,0) generated by default as identity,
+    cliente_id number(19,0) not null,
+    fecha date not null,
+    total float(53),
+    constraint pedido_pk primary key (id)
+);
+
+create table pedido_productos (
+    pedido_id number(19,0) not null,
+    producto_id number(19,0) not null,
+    cantidad number(10,0),
+    constraint pedido_productos_pk primary key (pedido_id, producto_id),
+    constraint pedido_productos_pedido_fk foreign key (pedido_id) references pedido (id)
+);
@@ -0,0 +1,85 @@
+-- Lleva el esquema a las entidades actuales. Cada paso tolera que ddl-auto=update ya lo haya hecho
+-- en una base existente (la secuencia, la columna o las tablas pueden existir).
+
+-- Ids por secuencia en bloques de 50 (ver Pedido.id) y pedido.id deja de ser IDENTITY. Ejecutar con el
+-- servicio detenido. Hibernate toma cada valor de la secuencia como el último id de su bloque (reparte de
+-- valor - 49 a valor): empezar en max(id) + 50 hace que el primer bloque quede entero por encima de max(id).
+declare
+    siguiente number;
+begin
+    select nvl(max(id), 0) + 50 into siguiente from pedido;
+    begin
+        execute immediate 'drop sequence pedido_seq';
+    exception
+        when others then
+            if sqlcode != -2289 then raise; end if; -- ORA-02289: la secuencia no existe
+    end;
+    execute immediate 'create sequence pedido_seq start with ' || siguiente || ' increment by 50';
+end;
+/
+
+begin
+    execute immediate 'alter table pedido modify id drop identity';
+exception
+    when others then
+        if sqlcode != -30673 then raise; end if; -- ORA-30673: la columna no es IDENTITY
+end;
+/
+
+-- Bloqueo optimista (ver Pedido.version); las filas existentes quedan en 0
+begin
+    execute immediate 'alter table pedido add version number(19,0) default 0';
+exception
+    when others then
+        if sqlcode != -1430 then raise; end if; -- ORA-01430: la columna ya existe
+end;
+/
+
+update pedido set version = 0 where version is null;
+
+-- Catálogo de precios (ver CatalogoPrecios) y resúmenes de ventas (ver VentaDiariaService)
+declare
+    procedure crear(ddl varchar2) is
+    begin
+        execute immediate ddl;
+    exception
+        when others then
+            if sqlcode != -955 then raise; end if; -- ORA-00955: la tabla ya existe
+    end;
+begin
+    crear('create table precio_producto (
+        producto_id number(19,0) not null,
+        precio float(53) not null,
+        constraint precio_producto_pk primary key (producto_id))');
+    crear('create table venta_diaria (
+        fecha date not null,
+        pedidos number(19,0) not null,
+        unidades number(19,0) not null,
+        ingresos float(53) not null,
+        constraint venta_diaria_pk primary key (fecha))');
+    crear('create table venta_diaria_cliente (
+        cliente_id number(19,0) not null,
+        fecha date not null,
+        pedidos number(19,0) not null,
+        unidades number(19,0) not null,
+        ingresos float(53) not null,
+        constraint venta_diaria_cliente_pk primary key (cliente_id, fecha))');
+end;
+/
+
+-- Hibernate creaba la clave de venta_diaria_cliente como (fecha, cliente_id): se rehace empezando por
+-- cliente_id, para que las fechas de un cliente sean un rango de la clave.
+declare
+    restriccion varchar2(128);
+    primera varchar2(128);
+begin
+    select c.constraint_name, cc.column_name into restriccion, primera
+      from user_constraints c
+      join user_cons_columns cc on cc.constraint_name = c.constraint_name and cc.position = 1
+     where c.table_name = 'VENTA_DIARIA_CLIENTE' and c.constraint_type = 'P';
+    if primera != 'CLIENTE_ID' then
+        execute immediate 'alter table venta_diaria_cliente drop constraint ' || restriccion || ' drop index';
+        execute immediate 'alter table venta_diaria_cliente add constraint venta_diaria_cliente_pk primary key (cliente_id, fecha)';
+    end if;
+end;
+/
@@ -0,0 +1,8 @@
+-- Índices para las consultas de PedidoRepository (ver PedidoRepositoryIndicesTest)
+
+-- findByClienteId, countByClienteId y findResumenesByClienteId (... order by id)
+create index pedido_cliente_id_idx on pedido (cliente_id, id);
+
+-- findByFecha, findByFechaBetween, streamByFechaBetweenOrderByIdAsc y sus resúmenes;
+-- findAllByOrderByFechaDescIdDesc (últimos pedidos) recorre el índice al revés sin ordenar
+create index pedido_fecha_id_idx on pedido (fecha, id);
@@ -0,0 +1,11 @@
+-- Outbox de eventos de pedidos (ver OutboxPedidos): se escribe en la transacción del pedido
+-- y RelayOutboxPedidos borra cada fila después de publicarla.
+create table pedido_evento (
+    id number(19,0) generated by default as identity,
+    tipo varchar2(20 char) not null,
+    pedido_id number(19,0) not null,
+    cliente_id number(19,0),
+    registrado timestamp not null,
+    datos clob not null,
+    constraint pedido_evento_pk primary key (id)
+);
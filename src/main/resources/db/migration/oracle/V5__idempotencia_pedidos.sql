@@ -0,0 +1,12 @@
+-- Claves Idempotency-Key de POST /api/v1/pedidos (ver IdempotenciaPedidos): se insertan en la transacción
+-- que crea el pedido y se borran al vencer pedidos.idempotencia.ttl.
+create table pedido_idempotencia (
+    clave varchar2(255 char) not null,
+    huella varchar2(64 char) not null,
+    pedido_id number(19,0) not null,
+    respuesta clob not null,
+    creada timestamp not null,
+    constraint pedido_idempotencia_pk primary key (clave)
+);
+
+create index pedido_idempotencia_creada_idx on pedido_idempotencia (creada);
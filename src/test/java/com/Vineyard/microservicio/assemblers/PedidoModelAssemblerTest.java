@@ -0,0 +1,104 @@
+package com.Vineyard.microservicio.assemblers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Links;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.Vineyard.microservicio.controller.PedidoController;
+import com.Vineyard.microservicio.model.Pedido;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+//El HAL de los enlaces armados con plantillas debe ser el mismo que con linkTo(methodOn(...)).
+//Se compara el JSON: los Link de linkTo además llevan affordances, que HAL no escribe.
+public class PedidoModelAssemblerTest {
+
+    private final PedidoModelAssembler assembler = new PedidoModelAssembler();
+
+    private final ObjectMapper mapper = mapperHal();
+
+    @AfterEach
+    void limpiar() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testToModelIgualQueLinkTo() throws Exception {
+        iniciarPeticion("localhost", 8080);
+
+        for (Pedido pedido : new Pedido[] {pedido(1L, 2L), pedido(12345L, 987L), pedido(7L, null)}) {
+            assertEquals(hal(EntityModel.of(pedido, enlacesConLinkTo(pedido))), hal(assembler.toModel(pedido)));
+        }
+    }
+
+    @Test
+    public void testEnlacesSeResuelvenPorPeticion() throws Exception {
+        iniciarPeticion("localhost", 8080);
+        EntityModel<Pedido> primero = assembler.toModel(pedido(1L, 2L));
+        EntityModel<Pedido> segundo = assembler.toModel(pedido(2L, 3L));
+
+        // Dentro de la misma petición los enlaces fijos se comparten
+        assertSame(primero.getRequiredLink("todos"), segundo.getRequiredLink("todos"));
+
+        // Otra petición, otro host: no se reutiliza lo resuelto antes
+        iniciarPeticion("pedidos.example.com", 9090);
+        Pedido pedido = pedido(1L, 2L);
+        assertEquals(hal(EntityModel.of(pedido, enlacesConLinkTo(pedido))), hal(assembler.toModel(pedido)));
+        assertEquals("http://pedidos.example.com:9090/api/v1/pedidos/1", assembler.toModel(pedido).getRequiredLink("self").getHref());
+    }
+
+    // Lo que devolvía toModel antes de usar plantillas
+    private static Links enlacesConLinkTo(Pedido pedido) {
+        return Links.of(
+            linkTo(methodOn(PedidoController.class).obtenerPedido(pedido.getId(), null)).withSelfRel(),
+            linkTo(methodOn(PedidoController.class).listarPedidos(null, null, null, null, null, null)).withRel("todos"),
+            linkTo(methodOn(PedidoController.class).obtenerPedidosPorCliente(pedido.getClienteId(), null)).withRel("por-cliente"),
+            linkTo(methodOn(PedidoController.class).contarPedidosPorCliente(pedido.getClienteId())).withRel("cantidad-cliente"),
+            linkTo(methodOn(PedidoController.class).eliminarPedido(pedido.getId(), null)).withRel("eliminar"),
+            linkTo(methodOn(PedidoController.class).obtenerUltimosPedidos()).withRel("ultimos"));
+    }
+
+    private String hal(EntityModel<Pedido> modelo) throws JsonProcessingException {
+        return mapper.writeValueAsString(modelo);
+    }
+
+    private static ObjectMapper mapperHal() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+            new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        return mapper;
+    }
+
+    private static void iniciarPeticion(String host, int puerto) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/pedidos");
+        request.setServerName(host);
+        request.setServerPort(puerto);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static Pedido pedido(Long id, Long clienteId) {
+        Pedido pedido = new Pedido();
+        pedido.setId(id);
+        pedido.setClienteId(clienteId);
+        pedido.setFecha(LocalDate.of(2025, 5, 24));
+        return pedido;
+    }
+}
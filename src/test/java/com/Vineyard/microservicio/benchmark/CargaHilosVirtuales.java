@@ -0,0 +1,193 @@
+package com.Vineyard.microservicio.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.Vineyard.microservicio.MicroservicioApplication;
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.repository.PedidoRepository;
+
+/*
+ * Prueba de carga: levanta el servicio contra H2 dos veces, con hilos de plataforma (pool de Tomcat) y con el
+ * perfil "virtual", y compara la latencia de GET /api/v1/pedidos/cliente/{id}?view=summary con muchos clientes
+ * concurrentes. Cada sentencia SQL espera "demora" ms antes de ejecutarse, para simular una base lenta.
+ * Ambos modos usan el mismo tamaño de pool de Hikari.
+ *
+ * ./mvnw -Pjava21 test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.Vineyard.microservicio.benchmark.CargaHilosVirtuales
+ *     -Dclientes=400 -Dpeticiones=20000 -Ddemora=20 -Dpool=20
+ *
+ * Solo corre con Java 21 o superior: antes no hay hilos virtuales y los dos modos serían hilos de plataforma
+ * (el perfil "virtual" tampoco inicia, ver HilosVirtualesConfig).
+ */
+public class CargaHilosVirtuales {
+
+    private static final int CLIENTES = Integer.getInteger("clientes", 400);
+    private static final int PETICIONES = Integer.getInteger("peticiones", 20_000);
+    private static final int DEMORA_MS = Integer.getInteger("demora", 20);
+    private static final int POOL = Integer.getInteger("pool", 20);
+    private static final int CLIENTES_BASE = 200;
+
+    public static void main(String[] args) throws Exception {
+        if (Runtime.version().feature() < 21) {
+            System.err.println("Java " + Runtime.version().feature() + " no tiene hilos virtuales: ejecutar con Java 21 "
+                + "o superior (./mvnw -Pjava21 ...).");
+            System.exit(1);
+        }
+        List<String> resultados = new ArrayList<>();
+        resultados.add(medir("plataforma", false));
+        resultados.add(medir("virtual", true));
+
+        System.out.printf("%nclientes=%d peticiones=%d demora=%d ms pool=%d%n", CLIENTES, PETICIONES, DEMORA_MS, POOL);
+        System.out.printf("%-12s %10s %8s %8s %8s %8s%n", "modo", "pet/s", "p50 ms", "p99 ms", "máx ms", "errores");
+        resultados.forEach(System.out::println);
+        System.exit(0);
+    }
+
+    private static String medir(String modo, boolean virtual) throws Exception {
+        // Como argumentos de línea de comandos, para que tengan prioridad sobre application.properties (perfil dev)
+        String[] argumentos = virtual
+            ? new String[] {"--spring.profiles.active=h2,virtual", "--pedidos.bd.concurrencia-maxima=" + POOL}
+            : new String[] {"--spring.profiles.active=h2"};
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(MicroservicioApplication.class)
+                .properties(
+                    "server.port=0",
+                    "spring.datasource.hikari.maximum-pool-size=" + POOL,
+                    "spring.datasource.hikari.minimum-idle=" + POOL,
+                    "pedidos.hibernate.estadisticas=false",
+                    "logging.level.root=WARN")
+                .initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(new DemoraBaseDatos()))
+                .run(argumentos)) {
+            cargarPedidos(contexto.getBean(PedidoRepository.class));
+            int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+            // Calentamiento: JIT, pool de conexiones y conexiones HTTP
+            ejecutar(cliente, puerto, PETICIONES / 10);
+            Resultado resultado = ejecutar(cliente, puerto, PETICIONES);
+            return resultado.formatear(modo);
+        }
+    }
+
+    private static void cargarPedidos(PedidoRepository pedidoRepository) {
+        List<Pedido> pedidos = new ArrayList<>();
+        for (int i = 0; i < CLIENTES_BASE * 10; i++) {
+            Pedido pedido = new Pedido();
+            pedido.setClienteId((long) (i % CLIENTES_BASE) + 1);
+            pedido.setFecha(LocalDate.of(2025, 5, 24));
+            pedido.setTotal(100);
+            pedidos.add(pedido);
+        }
+        pedidoRepository.saveAll(pedidos);
+    }
+
+    /*
+     * CLIENTES hilos envían peticiones una tras otra hasta completar "cantidad"; cada hilo guarda sus latencias.
+     */
+    private static Resultado ejecutar(HttpClient cliente, int puerto, int cantidad) throws InterruptedException {
+        AtomicInteger restantes = new AtomicInteger(cantidad);
+        AtomicInteger errores = new AtomicInteger();
+        long[][] latencias = new long[CLIENTES][];
+        ExecutorService hilos = Executors.newFixedThreadPool(CLIENTES);
+        long inicio = System.nanoTime();
+        for (int h = 0; h < CLIENTES; h++) {
+            int hilo = h;
+            hilos.execute(() -> {
+                long[] propias = new long[cantidad / CLIENTES + 1];
+                int n = 0;
+                while (restantes.getAndDecrement() > 0) {
+                    long clienteId = ThreadLocalRandom.current().nextLong(1, CLIENTES_BASE + 1);
+                    HttpRequest peticion = HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + puerto + "/api/v1/pedidos/cliente/" + clienteId + "?view=summary")).build();
+                    long t0 = System.nanoTime();
+                    try {
+                        if (cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                            errores.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errores.incrementAndGet();
+                    }
+                    if (n == propias.length) {
+                        propias = Arrays.copyOf(propias, n * 2);
+                    }
+                    propias[n++] = System.nanoTime() - t0;
+                }
+                latencias[hilo] = Arrays.copyOf(propias, n);
+            });
+        }
+        hilos.shutdown();
+        hilos.awaitTermination(1, TimeUnit.HOURS);
+        long duracion = System.nanoTime() - inicio;
+
+        long[] todas = Arrays.stream(latencias).flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Resultado(todas, duracion, errores.get());
+    }
+
+    private record Resultado(long[] latencias, long duracionNanos, int errores) {
+
+        String formatear(String modo) {
+            return String.format("%-12s %10.0f %8.1f %8.1f %8.1f %8d", modo,
+                latencias.length / (duracionNanos / 1e9), percentil(0.50), percentil(0.99),
+                latencias[latencias.length - 1] / 1e6, errores);
+        }
+
+        private double percentil(double p) {
+            return latencias[(int) Math.min(latencias.length - 1, Math.ceil(p * latencias.length) - 1)] / 1e6;
+        }
+    }
+
+    // Envuelve el DataSource para que cada sentencia preparada espere DEMORA_MS, reteniendo la conexión.
+    private static final class DemoraBaseDatos implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String nombre) {
+            if (!"dataSource".equals(nombre) || !(bean instanceof DataSource dataSource)) {
+                return bean;
+            }
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return demorar(super.getConnection());
+                }
+            };
+        }
+
+        private static Connection demorar(Connection conexion) {
+            return (Connection) Proxy.newProxyInstance(CargaHilosVirtuales.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, metodo, argumentos) -> {
+                    if (metodo.getName().equals("prepareStatement")) {
+                        Thread.sleep(DEMORA_MS);
+                    }
+                    try {
+                        return metodo.invoke(conexion, argumentos);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+        }
+    }
+}
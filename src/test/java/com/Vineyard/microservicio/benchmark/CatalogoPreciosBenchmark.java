@@ -0,0 +1,84 @@
+package com.Vineyard.microservicio.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.model.PedidoProductoId;
+import com.Vineyard.microservicio.service.CatalogoPrecios;
+
+/*
+ * Costo de calcular el total de un pedido con CatalogoPrecios, comparado con un HashMap<Long, Double>.
+ * Con -prof gc (activado en el perfil benchmarks) gc.alloc.rate.norm debe ser ~0 B/op para calcularTotal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogoPreciosBenchmark {
+
+    @Param({"10", "5000"})
+    public int lineas;
+
+    @Param({"10000", "1000000"})
+    public int productos;
+
+    private CatalogoPrecios catalogo;
+    private Map<Long, Double> mapa;
+    private List<PedidoProducto> pedido;
+
+    @Setup
+    public void preparar() {
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        long[] ids = new long[productos];
+        double[] precios = new double[productos];
+        mapa = new HashMap<>(productos * 2);
+        for (int i = 0; i < productos; i++) {
+            ids[i] = 1_000L + i * 3L;
+            precios[i] = Math.round(aleatorio.nextDouble(1, 100_000)) / 100.0;
+            mapa.put(ids[i], precios[i]);
+        }
+        catalogo = new CatalogoPrecios();
+        catalogo.reemplazar(ids, precios, productos);
+
+        pedido = new ArrayList<>(lineas);
+        for (int i = 0; i < lineas; i++) {
+            PedidoProducto linea = new PedidoProducto();
+            linea.setId(new PedidoProductoId(null, ids[aleatorio.nextInt(productos)]));
+            linea.setCantidad(1 + aleatorio.nextInt(10));
+            pedido.add(linea);
+        }
+    }
+
+    @Benchmark
+    public double calcularTotal() {
+        return catalogo.calcularTotal(pedido);
+    }
+
+    @Benchmark
+    public double calcularTotalConHashMap() {
+        double total = 0;
+        for (PedidoProducto linea : pedido) {
+            total += mapa.get(linea.getId().getProductoId()) * linea.getCantidad();
+        }
+        return Math.round(total * 100) / 100.0;
+    }
+}
@@ -0,0 +1,180 @@
+package com.Vineyard.microservicio.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.Vineyard.microservicio.assemblers.PedidoModelAssembler;
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.model.PedidoProductoId;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/*
+ * Un listado de PedidoController serializado como HAL JSON (application/hal+json) y como CBOR sin enlaces
+ * (application/cbor, ver FormatosRespuestaConfig), con y sin gzip (server.compression).
+ * Cada operación escribe el listado de "cantidad" pedidos y devuelve los bytes; el tamaño de cada formato se
+ * imprime al preparar la corrida.
+ *
+ * ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.filtro=FormatosRespuesta
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatosRespuestaBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int cantidad;
+
+    private CollectionModel<EntityModel<Pedido>> coleccion;
+    private ObjectWriter halWriter;
+    private ObjectWriter cborWriter;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        // Los enlaces se arman contra la petición actual, como dentro de un request real.
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/pedidos/rango-fechas");
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        PedidoModelAssembler assembler = new PedidoModelAssembler();
+        List<EntityModel<Pedido>> pedidos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            pedidos.add(assembler.toModel(pedido(i + 1L)));
+        }
+        coleccion = CollectionModel.of(pedidos,
+            Link.of("http://localhost:8080/api/v1/pedidos/rango-fechas?desde=2025-05-01&hasta=2025-05-31").withSelfRel());
+        halWriter = mapperHal().writer();
+        cborWriter = mapperCbor().writer();
+
+        System.out.printf("%n%d pedidos: hal+json %d B, hal+json gzip %d B, cbor %d B, cbor gzip %d B%n", cantidad,
+            halJson(), halJsonGzip(), cbor(), cborGzip());
+    }
+
+    @TearDown(Level.Trial)
+    public void terminar() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public long halJson() throws IOException {
+        return escribir(halWriter, false);
+    }
+
+    @Benchmark
+    public long halJsonGzip() throws IOException {
+        return escribir(halWriter, true);
+    }
+
+    @Benchmark
+    public long cbor() throws IOException {
+        return escribir(cborWriter, false);
+    }
+
+    @Benchmark
+    public long cborGzip() throws IOException {
+        return escribir(cborWriter, true);
+    }
+
+    private long escribir(ObjectWriter writer, boolean gzip) throws IOException {
+        ContadorBytes salida = new ContadorBytes();
+        if (gzip) {
+            try (GZIPOutputStream comprimida = new GZIPOutputStream(salida, 8192)) {
+                writer.writeValue(comprimida, coleccion);
+            }
+        } else {
+            writer.writeValue(salida, coleccion);
+        }
+        return salida.bytes;
+    }
+
+    // Igual que el ObjectMapper de Spring Boot para application/hal+json
+    private static ObjectMapper mapperHal() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+            new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        return mapper;
+    }
+
+    // Igual que el convertidor de FormatosRespuestaConfig
+    private static ObjectMapper mapperCbor() {
+        return Jackson2ObjectMapperBuilder.json()
+            .factory(new CBORFactory())
+            .mixIn(RepresentationModel.class, SinEnlaces.class)
+            .build();
+    }
+
+    @JsonIgnoreProperties("links")
+    abstract static class SinEnlaces {
+    }
+
+    private static Pedido pedido(Long id) {
+        Pedido pedido = new Pedido();
+        pedido.setId(id);
+        pedido.setClienteId(id % 500 + 1);
+        pedido.setFecha(LocalDate.of(2025, 5, 24));
+        pedido.setTotal(1999.5);
+        pedido.setVersion(0L);
+        for (long productoId = 1; productoId <= 3; productoId++) {
+            pedido.getProductos().add(new PedidoProducto(new PedidoProductoId(id, productoId), pedido, 2));
+        }
+        return pedido;
+    }
+
+    // Descarta lo escrito y solo cuenta los bytes, para medir la serialización y no la E/S.
+    private static final class ContadorBytes extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.Vineyard.microservicio.benchmark;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.Vineyard.microservicio.assemblers.PedidoModelAssembler;
+import com.Vineyard.microservicio.controller.PedidoController;
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.model.PedidoProductoId;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/*
+ * Camino caliente de los listados de PedidoController: PedidoModelAssembler.toModel por pedido,
+ * CollectionModel con el enlace self y serialización HAL con Jackson.
+ * Cada operación procesa "cantidad" pedidos; con -prof gc, gc.alloc.rate.norm dividido por la cantidad
+ * da los bytes asignados por pedido.
+ * toModelConLinkTo arma los mismos enlaces con linkTo(methodOn(...)) por pedido, como antes de las plantillas
+ * del assembler, para comparar contra toModel en la misma corrida.
+ *
+ * ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.filtro=PedidoModelAssembler
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PedidoModelAssemblerBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int cantidad;
+
+    private final PedidoModelAssembler assembler = new PedidoModelAssembler();
+
+    private List<Pedido> pedidos;
+    private CollectionModel<EntityModel<Pedido>> coleccion;
+    private ObjectWriter halWriter;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        // Los enlaces se arman contra la petición actual, como dentro de un request real.
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/pedidos");
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        pedidos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            pedidos.add(pedido(i + 1L));
+        }
+        coleccion = listar();
+        halWriter = mapperHal().writer();
+    }
+
+    @TearDown(Level.Trial)
+    public void terminar() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public List<EntityModel<Pedido>> toModel() {
+        return pedidos.stream().map(assembler::toModel).toList();
+    }
+
+    @Benchmark
+    public List<EntityModel<Pedido>> toModelConLinkTo() {
+        return pedidos.stream().map(PedidoModelAssemblerBenchmark::toModelConLinkTo).toList();
+    }
+
+    @Benchmark
+    public CollectionModel<EntityModel<Pedido>> collectionModel() {
+        return listar();
+    }
+
+    @Benchmark
+    public long serializarHal() throws IOException {
+        ContadorBytes salida = new ContadorBytes();
+        halWriter.writeValue(salida, coleccion);
+        return salida.bytes;
+    }
+
+    // toModel + CollectionModel + HAL: lo que cuesta responder un listado
+    @Benchmark
+    public long listadoCompleto() throws IOException {
+        ContadorBytes salida = new ContadorBytes();
+        halWriter.writeValue(salida, listar());
+        return salida.bytes;
+    }
+
+    private CollectionModel<EntityModel<Pedido>> listar() {
+        return CollectionModel.of(toModel(),
+            linkTo(methodOn(PedidoController.class).listarPedidos(null, null, null, null, null, null)).withSelfRel());
+    }
+
+    private static EntityModel<Pedido> toModelConLinkTo(Pedido pedido) {
+        return EntityModel.of(pedido,
+            linkTo(methodOn(PedidoController.class).obtenerPedido(pedido.getId(), null)).withSelfRel(),
+            linkTo(methodOn(PedidoController.class).listarPedidos(null, null, null, null, null, null)).withRel("todos"),
+            linkTo(methodOn(PedidoController.class).obtenerPedidosPorCliente(pedido.getClienteId(), null)).withRel("por-cliente"),
+            linkTo(methodOn(PedidoController.class).contarPedidosPorCliente(pedido.getClienteId())).withRel("cantidad-cliente"),
+            linkTo(methodOn(PedidoController.class).eliminarPedido(pedido.getId(), null)).withRel("eliminar"),
+            linkTo(methodOn(PedidoController.class).obtenerUltimosPedidos()).withRel("ultimos"));
+    }
+
+    // Igual que el ObjectMapper de Spring Boot para application/hal+json
+    private static ObjectMapper mapperHal() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+            new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        return mapper;
+    }
+
+    private static Pedido pedido(Long id) {
+        Pedido pedido = new Pedido();
+        pedido.setId(id);
+        pedido.setClienteId(id % 500 + 1);
+        pedido.setFecha(LocalDate.of(2025, 5, 24));
+        pedido.setTotal(1999.5);
+        pedido.setVersion(0L);
+        for (long productoId = 1; productoId <= 3; productoId++) {
+            pedido.getProductos().add(new PedidoProducto(new PedidoProductoId(id, productoId), pedido, 2));
+        }
+        return pedido;
+    }
+
+    // Descarta lo escrito y solo cuenta los bytes, para medir la serialización y no la E/S.
+    private static final class ContadorBytes extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.Vineyard.microservicio.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+//Prueba unitaria del aspecto: la lectura espera en un latch para que las llamadas coincidan.
+public class CoalescenciaConfigTest {
+
+    private final MeterRegistry registro = new SimpleMeterRegistry();
+
+    private final ExecutorService ejecutor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void cerrar() {
+        ejecutor.shutdownNow();
+    }
+
+    @Test
+    public void testLlamadasSimultaneasCompartenUnaEjecucion() throws Exception {
+        Lecturas lecturas = new Lecturas();
+        Lecturas proxy = proxy(lecturas, Duration.ZERO);
+
+        List<Future<List<Long>>> resultados = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            resultados.add(ejecutor.submit(() -> proxy.buscar(7L)));
+        }
+        // Todas llegaron: una ejecuta la lectura y las otras 7 esperan su resultado
+        while (contador("compartida") + contador("ejecutada") < 8) {
+            Thread.sleep(5);
+        }
+        lecturas.liberar.countDown();
+
+        List<Long> primero = resultados.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<List<Long>> resultado : resultados) {
+            assertSame(primero, resultado.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, lecturas.ejecuciones.get());
+        assertEquals(1, contador("ejecutada"));
+        assertEquals(7, contador("compartida"));
+
+        // Sin ventana, la siguiente llamada vuelve a ejecutar
+        proxy.buscar(7L);
+        assertEquals(2, lecturas.ejecuciones.get());
+    }
+
+    @Test
+    public void testArgumentosDistintosNoSeComparten() {
+        Lecturas lecturas = new Lecturas();
+        lecturas.liberar.countDown();
+        Lecturas proxy = proxy(lecturas, Duration.ofMinutes(1));
+
+        assertEquals(List.of(7L), proxy.buscar(7L));
+        assertEquals(List.of(8L), proxy.buscar(8L));
+        assertEquals(List.of(7L), proxy.buscar(7L));
+
+        // La tercera llamada reutiliza la primera dentro de la ventana
+        assertEquals(2, lecturas.ejecuciones.get());
+        assertEquals(1, contador("compartida"));
+    }
+
+    @Test
+    public void testLosErroresNoSeReutilizan() {
+        Lecturas lecturas = new Lecturas();
+        lecturas.liberar.countDown();
+        Lecturas proxy = proxy(lecturas, Duration.ofMinutes(1));
+
+        assertThrows(IllegalArgumentException.class, () -> proxy.buscar(null));
+        assertThrows(IllegalArgumentException.class, () -> proxy.buscar(null));
+        assertEquals(2, lecturas.ejecuciones.get());
+    }
+
+    @Test
+    public void testDentroDeUnaTransaccionNoSeComparte() {
+        Lecturas lecturas = new Lecturas();
+        lecturas.liberar.countDown();
+        Lecturas proxy = proxy(lecturas, Duration.ofMinutes(1));
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            proxy.buscar(7L);
+            proxy.buscar(7L);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        assertEquals(2, lecturas.ejecuciones.get());
+        assertEquals(0, contador("compartida"));
+    }
+
+    private Lecturas proxy(Lecturas lecturas, Duration ventana) {
+        AspectJProxyFactory fabrica = new AspectJProxyFactory(lecturas);
+        fabrica.setProxyTargetClass(true);
+        fabrica.addAspect(new CoalescenciaConfig.LecturasCompartidas(registro, ventana));
+        return fabrica.getProxy();
+    }
+
+    private double contador(String resultado) {
+        var contador = registro.find("pedidos.coalescencia").tag("resultado", resultado).counter();
+        return contador == null ? 0 : contador.count();
+    }
+
+    public static class Lecturas {
+
+        private final AtomicInteger ejecuciones = new AtomicInteger();
+        private final CountDownLatch liberar = new CountDownLatch(1);
+
+        @LecturaCompartida
+        public List<Long> buscar(Long id) {
+            ejecuciones.incrementAndGet();
+            if (id == null) {
+                throw new IllegalArgumentException("id");
+            }
+            try {
+                liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(id);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.Vineyard.microservicio.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+//Prueba unitaria del semáforo de conexiones contra una base H2 en memoria.
+public class DataSourceLimitadoTest {
+
+    @Test
+    public void testEsperaYFallaSinPermisos() throws SQLException {
+        DataSourceLimitado dataSource = new DataSourceLimitado(h2(), 2, Duration.ofMillis(50));
+
+        Connection primera = dataSource.getConnection();
+        Connection segunda = dataSource.getConnection();
+        assertEquals(0, dataSource.getPermisosDisponibles());
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        // Cerrar dos veces la misma conexión devuelve un solo permiso
+        primera.close();
+        primera.close();
+        assertEquals(1, dataSource.getPermisosDisponibles());
+        assertTrue(primera.isClosed());
+
+        try (Connection tercera = dataSource.getConnection()) {
+            assertFalse(tercera.isClosed());
+            assertTrue(tercera.createStatement().execute("select 1"));
+        }
+        segunda.close();
+        assertEquals(2, dataSource.getPermisosDisponibles());
+    }
+
+    @Test
+    public void testDevuelveElPermisoSiFallaLaConexion() throws SQLException {
+        DataSource destino = mock(DataSource.class);
+        when(destino.getConnection()).thenThrow(new SQLException("sin base"));
+        DataSourceLimitado dataSource = new DataSourceLimitado(destino, 1, Duration.ofMillis(50));
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertEquals(1, dataSource.getPermisosDisponibles());
+    }
+
+    private static DataSource h2() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:limitado;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+}
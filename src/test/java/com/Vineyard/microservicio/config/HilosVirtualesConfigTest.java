@@ -0,0 +1,34 @@
+package com.Vineyard.microservicio.config;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+//El perfil "virtual" no debe iniciar en un JDK sin hilos virtuales.
+public class HilosVirtualesConfigTest {
+
+    private final ApplicationContextRunner contexto = new ApplicationContextRunner()
+        .withUserConfiguration(HilosVirtualesConfig.class);
+
+    @Test
+    public void testVersionDeJava() {
+        assertThrows(IllegalStateException.class, () -> HilosVirtualesConfig.verificar(17));
+        assertDoesNotThrow(() -> HilosVirtualesConfig.verificar(21));
+    }
+
+    @Test
+    public void testSinLaPropiedadNoSeVerifica() {
+        contexto.run(ctx -> assertTrue(ctx.getBeansOfType(HilosVirtualesConfig.class).isEmpty()));
+    }
+
+    @Test
+    public void testConLaPropiedadSeVerificaElJdk() {
+        boolean soportado = Runtime.version().feature() >= HilosVirtualesConfig.VERSION_MINIMA;
+        contexto.withPropertyValues("spring.threads.virtual.enabled=true")
+            .run(ctx -> assertEquals(soportado, ctx.getStartupFailure() == null));
+    }
+}
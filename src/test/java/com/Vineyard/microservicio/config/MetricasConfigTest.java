@@ -0,0 +1,109 @@
+package com.Vineyard.microservicio.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.model.PedidoProductoId;
+import com.Vineyard.microservicio.service.CatalogoPrecios;
+import com.Vineyard.microservicio.service.PedidoService;
+import com.Vineyard.microservicio.service.UltimosPedidosBuffer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+//Comprueba los contadores por petición y el timer de PedidoService contra H2.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@ImportAutoConfiguration(AopAutoConfiguration.class)
+@Import({MetricasConfig.class, SimpleMeterRegistry.class, PedidoService.class, UltimosPedidosBuffer.class,
+    CatalogoPrecios.class})
+public class MetricasConfigTest {
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry registro;
+
+    @Test
+    public void testContadoresDeUnaConsulta() {
+        for (int i = 0; i < 3; i++) {
+            Pedido pedido = new Pedido();
+            pedido.setClienteId(40L);
+            pedido.setFecha(LocalDate.of(2025, 5, 24));
+            pedido.getProductos().add(new PedidoProducto(new PedidoProductoId(null, 1L), pedido, 1));
+            pedido.getProductos().add(new PedidoProducto(new PedidoProductoId(null, 2L), pedido, 1));
+            entityManager.persist(pedido);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        ContadoresPeticion.iniciar();
+        pedidoService.obtenerPedidosPorCliente(40L);
+        ContadoresPeticion contadores = ContadoresPeticion.terminar();
+
+        // Un SELECT con los productos (@EntityGraph), 6 líneas hidratadas y 3 pedidos devueltos
+        assertEquals(1, contadores.getSentencias());
+        assertEquals(6, contadores.getLineas());
+        assertEquals(3, contadores.getFilas());
+        assertEquals(1, registro.get("pedidos.servicio").tag("method", "obtenerPedidosPorCliente").timer().count());
+    }
+
+    @Test
+    public void testSinPeticionNoSeCuenta() {
+        pedidoService.listarResumenes();
+
+        assertNull(ContadoresPeticion.terminar());
+    }
+
+    @Test
+    public void testFiltroPublicaPorEndpoint() throws Exception {
+        MetricasPeticionFilter filtro = new MetricasPeticionFilter(registro);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/pedidos/cliente/7");
+        MockFilterChain cadena = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) {
+                // Lo que haría Spring MVC al elegir el controlador y PedidoService al devolver la lista
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/v1/pedidos/cliente/{clienteId}");
+                ContadoresPeticion.sumarFilas(List.of(1, 2));
+            }
+        });
+
+        filtro.doFilter(request, new MockHttpServletResponse(), cadena);
+
+        DistributionSummary filas = registro.get("pedidos.peticion.filas")
+            .tag("uri", "/api/v1/pedidos/cliente/{clienteId}").tag("method", "GET").summary();
+        assertNotNull(filas);
+        assertEquals(1, filas.count());
+        assertEquals(2.0, filas.totalAmount());
+        assertNull(ContadoresPeticion.terminar());
+    }
+}
@@ -1,27 +1,66 @@
 package com.Vineyard.microservicio.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.Vineyard.microservicio.assemblers.PedidoModelAssembler;
+import com.Vineyard.microservicio.config.FormatosRespuestaConfig;
+import com.Vineyard.microservicio.dto.ClienteTop;
+import com.Vineyard.microservicio.dto.PedidoResumen;
+import com.Vineyard.microservicio.dto.ResultadoCargaMasiva;
+import com.Vineyard.microservicio.dto.ResultadoItemCarga;
+import com.Vineyard.microservicio.dto.ResumenVentas;
+import com.Vineyard.microservicio.dto.VentaDia;
 import com.Vineyard.microservicio.model.Pedido;
 import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.service.CargaMasivaPedidoService;
+import com.Vineyard.microservicio.service.ClaveIdempotenciaReutilizadaException;
+import com.Vineyard.microservicio.service.DifusionPedidos;
+import com.Vineyard.microservicio.service.IdempotenciaPedidos;
 import com.Vineyard.microservicio.service.PedidoService;
+import com.Vineyard.microservicio.service.VentaDiariaService;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.ServletException;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import org.springframework.http.MediaType;
@@ -29,6 +68,7 @@ import org.springframework.http.MediaType;
 //Carga solo el contexto web de Spring MVC para probar controladores.
 
 @WebMvcTest(PedidoController.class)
+@Import(FormatosRespuestaConfig.class)
 public class PedidoControllerTest {
 //Inyecta automáticamente dependencias 
     @Autowired
@@ -37,9 +77,21 @@ public class PedidoControllerTest {
     @MockitoBean
     private PedidoService pedidoService;
 
+    @MockitoBean
+    private CargaMasivaPedidoService cargaMasivaPedidoService;
+
+    @MockitoBean
+    private VentaDiariaService ventaDiariaService;
+
     @MockitoBean
     private PedidoModelAssembler assembler;
 
+    @MockitoBean
+    private DifusionPedidos difusionPedidos;
+
+    @MockitoBean
+    private IdempotenciaPedidos idempotenciaPedidos;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -58,21 +110,178 @@ public class PedidoControllerTest {
     EntityModel<Pedido> pedidoModel = EntityModel.of(pedido);
     when(assembler.toModel(any(Pedido.class))).thenReturn(pedidoModel);
     when(assembler.toCollectionModel(any())).thenReturn(CollectionModel.of(List.of(pedidoModel)));
+    when(assembler.toResumenModel(any(PedidoResumen.class))).thenAnswer(inv -> EntityModel.of(inv.getArgument(0, PedidoResumen.class)));
     }
 
 
     @Test
     public void testListarPedidos() throws Exception {
-        // Simula el modelo HATEOAS
-        EntityModel<Pedido> pedidoModel = EntityModel.of(pedido);
-        when(pedidoService.listarPedidos()).thenReturn(List.of(pedido));
-        when(assembler.toCollectionModel(any())).thenReturn(CollectionModel.of(List.of(pedidoModel)));
+        // Simula una página de pedidos
+        when(pedidoService.listarPedidos(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(pedido), PageRequest.of(0, 20), 1));
 
         mockMvc.perform(get("/api/v1/pedidos"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("_embedded.pedidoList[0].id").value(1));
+                .andExpect(jsonPath("_embedded.pedidoList[0].id").value(1))
+                .andExpect(jsonPath("page.totalElements").value(1));
     }
 
+    @Test
+    public void testListarPedidosEnCbor() throws Exception {
+        when(pedidoService.listarPedidos(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(pedido), PageRequest.of(0, 20), 1));
+
+        JsonNode listado = leerCbor(get("/api/v1/pedidos"));
+        assertEquals(1, listado.at("/content/0/id").asLong());
+        assertEquals(1, listado.at("/page/totalElements").asLong());
+        // Sin enlaces, ni del listado ni de cada pedido
+        assertFalse(listado.has("links"));
+        assertFalse(listado.at("/content/0").has("links"));
+    }
+
+    @Test
+    public void testListarPedidosPorCursor() throws Exception {
+        Pedido siguiente = new Pedido();
+        siguiente.setId(2L);
+        siguiente.setClienteId(2L);
+        when(pedidoService.listarPedidosDespues(0L, 2)).thenReturn(List.of(pedido, siguiente));
+
+        mockMvc.perform(get("/api/v1/pedidos?despues=0&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("_links.next.href").value("http://localhost/api/v1/pedidos?size=2&despues=2"))
+                .andExpect(jsonPath("_links.prev.href").value("http://localhost/api/v1/pedidos?size=2&antes=1"));
+    }
+
+    @Test
+    public void testListarPedidosResumen() throws Exception {
+        when(pedidoService.listarResumenes(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(new PedidoResumen(1L, 2L, LocalDate.now(), 100.0, 3)), PageRequest.of(0, 20), 1));
+
+        mockMvc.perform(get("/api/v1/pedidos").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("_embedded.pedidoList[0].id").value(1))
+                .andExpect(jsonPath("_embedded.pedidoList[0].lineas").value(3))
+                .andExpect(jsonPath("_embedded.pedidoList[0].productos").doesNotExist())
+                .andExpect(jsonPath("page.totalElements").value(1));
+
+        verify(pedidoService, never()).listarPedidos(any(Pageable.class));
+    }
+
+    @Test
+    public void testObtenerPedidosPorClienteResumen() throws Exception {
+        when(pedidoService.obtenerResumenesPorCliente(2L)).thenReturn(List.of(new PedidoResumen(1L, 2L, LocalDate.now(), 100.0, 3)));
+
+        mockMvc.perform(get("/api/v1/pedidos/cliente/2?view=SUMMARY"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("_embedded.pedidoList[0].clienteId").value(2))
+                .andExpect(jsonPath("_links.self.href").value("http://localhost/api/v1/pedidos/cliente/2?view=SUMMARY"));
+
+        verify(pedidoService, never()).obtenerPedidosPorCliente(any());
+    }
+
+    @Test
+    public void testListarPedidosVistaInvalida() throws Exception {
+        mockMvc.perform(get("/api/v1/pedidos").param("view", "compacta"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testListarTodosLosPedidosNoHabilitado() throws Exception {
+        mockMvc.perform(get("/api/v1/pedidos").param("todos", "true"))
+                .andExpect(status().isBadRequest());
+
+        verify(pedidoService, never()).listarPedidos();
+    }
+
+    @Test
+    public void testObtenerPedidoConEtag() throws Exception {
+        pedido.setVersion(3L);
+        when(pedidoService.findById(1L)).thenReturn(pedido);
+
+        mockMvc.perform(get("/api/v1/pedidos/1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"3\""))
+            .andExpect(jsonPath("$.id").value(1));
+    }
+
+    @Test
+    public void testObtenerPedidoNoModificado() throws Exception {
+        pedido.setVersion(3L);
+        when(pedidoService.findById(1L)).thenReturn(pedido);
+
+        mockMvc.perform(get("/api/v1/pedidos/1").header("If-None-Match", "\"3\""))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        verify(assembler, never()).toModel(any(Pedido.class));
+    }
+
+    @Test
+    public void testActualizarConVersionDesactualizada() throws Exception {
+        when(pedidoService.actualizarPedido(eq(1L), any(Pedido.class), eq(2L)))
+            .thenThrow(new ObjectOptimisticLockingFailureException(Pedido.class, 1L));
+
+        mockMvc.perform(put("/api/v1/pedidos/1")
+                .header("If-Match", "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(pedido)))
+            .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void testActualizarDevuelveNuevoEtag() throws Exception {
+        Pedido actualizado = new Pedido();
+        actualizado.setId(1L);
+        actualizado.setVersion(4L);
+        when(pedidoService.actualizarPedido(eq(1L), any(Pedido.class), eq(3L))).thenReturn(actualizado);
+
+        mockMvc.perform(put("/api/v1/pedidos/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(pedido)))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    public void testEtiquetaDebilEnIfMatchNoCoincide() throws Exception {
+        // El servicio rechaza una versión que ningún pedido tiene
+        when(pedidoService.actualizarPedido(eq(1L), any(Pedido.class), eq(-1L)))
+            .thenThrow(new ObjectOptimisticLockingFailureException(Pedido.class, 1L));
+        doThrow(new ObjectOptimisticLockingFailureException(Pedido.class, 1L))
+            .when(pedidoService).eliminarPedido(1L, -1L);
+
+        mockMvc.perform(put("/api/v1/pedidos/1")
+                .header("If-Match", "W/\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(pedido)))
+            .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/api/v1/pedidos/1").header("If-Match", "W/\"3\""))
+            .andExpect(status().isPreconditionFailed());
+        verify(pedidoService, never()).actualizarPedido(eq(1L), any(Pedido.class), eq(3L));
+        verify(pedidoService, never()).eliminarPedido(1L, 3L);
+    }
+
+    @Test
+    public void testActualizarConErrorDelServidorNoEs404() throws Exception {
+        when(pedidoService.actualizarPedido(eq(1L), any(Pedido.class), eq(null)))
+            .thenThrow(new DataAccessResourceFailureException("Sin conexión"));
+
+        assertThrows(ServletException.class, () -> mockMvc.perform(put("/api/v1/pedidos/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(pedido))));
+    }
+
+    @Test
+    public void testActualizarPedidoInexistente() throws Exception {
+        when(pedidoService.actualizarPedido(eq(1L), any(Pedido.class), eq(null)))
+            .thenThrow(new EntityNotFoundException("Pedido no encontrado con ID: 1"));
+
+        mockMvc.perform(put("/api/v1/pedidos/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(pedido)))
+            .andExpect(status().isNotFound());
+    }
 
     @Test
     public void testObtenerPedidosPorCliente() throws Exception {
@@ -86,6 +295,19 @@ public class PedidoControllerTest {
                 .andExpect(jsonPath("_embedded.pedidoList[0].clienteId").value(2));
     }
 
+    @Test
+    public void testObtenerPedidosPorClienteEnCbor() throws Exception {
+        when(pedidoService.obtenerPedidosPorCliente(2L)).thenReturn(List.of(pedido));
+
+        JsonNode listado = leerCbor(get("/api/v1/pedidos/cliente/2"));
+        assertEquals(2, listado.at("/content/0/clienteId").asLong());
+        assertFalse(listado.at("/content/0").has("links"));
+        // Los clientes que piden JSON siguen recibiendo el listado con enlaces
+        mockMvc.perform(get("/api/v1/pedidos/cliente/2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("_embedded.pedidoList[0].clienteId").value(2));
+    }
+
 
     @Test
     public void testObtenerPedidosPorFecha() throws Exception {
@@ -102,6 +324,100 @@ public class PedidoControllerTest {
                 .andExpect(jsonPath("_embedded.pedidoList[0].id").value(1));
     }
 
+    @Test
+    public void testObtenerPedidosPorFechaEnCbor() throws Exception {
+        LocalDate fecha = LocalDate.now();
+        when(pedidoService.obtenerPedidosPorFecha(fecha)).thenReturn(List.of(pedido));
+
+        JsonNode listado = leerCbor(get("/api/v1/pedidos/fecha").param("fecha", fecha.toString()));
+        assertEquals(1, listado.at("/content/0/id").asLong());
+    }
+
+    @Test
+    public void testTopClientes() throws Exception {
+        LocalDate desde = LocalDate.of(2025, 5, 1);
+        LocalDate hasta = LocalDate.of(2025, 5, 31);
+        when(ventaDiariaService.topClientes(desde, hasta, 3, VentaDiariaService.Criterio.INGRESOS))
+            .thenReturn(List.of(new ClienteTop(2L, 4, 9, 120.5)));
+
+        mockMvc.perform(get("/api/v1/pedidos/clientes/top?desde=2025-05-01&hasta=2025-05-31&k=3&por=ingresos"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("[0].clienteId").value(2))
+                .andExpect(jsonPath("[0].ingresos").value(120.5));
+        mockMvc.perform(get("/api/v1/pedidos/clientes/top?desde=2025-05-01&hasta=2025-05-31&k=0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/pedidos/clientes/top?desde=2025-05-01&hasta=2025-05-31&por=unidades"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testObtenerPedidosPorIds() throws Exception {
+        when(pedidoService.buscarPorIds(List.of(1L, 5L))).thenReturn(Map.of(1L, pedido));
+
+        mockMvc.perform(post("/api/v1/pedidos/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 5]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("pedidos.1.clienteId").value(2))
+                .andExpect(jsonPath("noEncontrados[0]").value(5));
+        mockMvc.perform(post("/api/v1/pedidos/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testObtenerPedidosPorIdsEnCbor() throws Exception {
+        when(pedidoService.buscarPorIds(List.of(1L, 5L))).thenReturn(Map.of(1L, pedido));
+
+        JsonNode respuesta = leerCbor(post("/api/v1/pedidos/batch-get")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1, 5]"));
+        assertEquals(2, respuesta.at("/pedidos/1/clienteId").asLong());
+        assertEquals(5, respuesta.at("/noEncontrados/0").asLong());
+    }
+
+    @Test
+    public void testContarPedidosPorClientes() throws Exception {
+        Map<Long, Long> cantidades = new LinkedHashMap<>();
+        cantidades.put(2L, 3L);
+        cantidades.put(9L, 0L);
+        when(pedidoService.contarPedidosPorClientes(List.of(2L, 9L))).thenReturn(cantidades);
+
+        mockMvc.perform(post("/api/v1/pedidos/cliente/cantidades")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[2, 9]"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"2\": 3, \"9\": 0}"));
+        mockMvc.perform(post("/api/v1/pedidos/cliente/cantidades")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[2, null]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testStreamEnviaEventos() throws Exception {
+        SseEmitter emitter = new SseEmitter();
+        when(difusionPedidos.suscribir(any())).thenReturn(Optional.of(emitter));
+
+        MvcResult resultado = mockMvc.perform(get("/api/v1/pedidos/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        emitter.send(SseEmitter.event().id("1").name("pedido").data("{\"id\":1}"));
+
+        assertEquals("text/event-stream", resultado.getResponse().getContentType());
+        assertEquals("id:1\nevent:pedido\ndata:{\"id\":1}\n\n", resultado.getResponse().getContentAsString());
+    }
+
+    @Test
+    public void testStreamSinCapacidad() throws Exception {
+        when(difusionPedidos.suscribir(any())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/pedidos/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
+    }
+
     @Test
     public void testObtenerPedidosEntreFechas() throws Exception {
         LocalDate desde = LocalDate.now().minusDays(5);
@@ -119,8 +435,72 @@ public class PedidoControllerTest {
                 .andExpect(jsonPath("_embedded.pedidoList[0].id").value(1));
     }
 
+    @Test
+    public void testObtenerPedidosEntreFechasEnCbor() throws Exception {
+        LocalDate desde = LocalDate.now().minusDays(5);
+        LocalDate hasta = LocalDate.now();
+        when(pedidoService.obtenerPedidosEntreFechas(desde, hasta)).thenReturn(List.of(pedido));
+
+        JsonNode listado = leerCbor(get("/api/v1/pedidos/rango-fechas")
+                .param("desde", desde.toString())
+                .param("hasta", hasta.toString()));
+        assertEquals(1, listado.at("/content/0/id").asLong());
+    }
+
         
 
+    @Test
+    public void testExportarPedidosEntreFechas() throws Exception {
+        LocalDate desde = LocalDate.now().minusDays(5);
+        LocalDate hasta = LocalDate.now();
+
+        // Simula dos lotes de un pedido cada uno
+        doAnswer(invocacion -> {
+            Consumer<List<Pedido>> consumidor = invocacion.getArgument(2);
+            consumidor.accept(List.of(pedido));
+            consumidor.accept(List.of(pedido));
+            return null;
+        }).when(pedidoService).exportarPedidosEntreFechas(eq(desde), eq(hasta), any());
+
+        MvcResult resultado = mockMvc.perform(get("/api/v1/pedidos/rango-fechas/exportar")
+                        .param("desde", desde.toString())
+                        .param("hasta", hasta.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String cuerpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lineas = cuerpo.split("\n");
+        assertEquals(2, lineas.length);
+        assertEquals(1L, objectMapper.readTree(lineas[1]).get("id").asLong());
+    }
+
+    @Test
+    public void testObtenerVentasDiarias() throws Exception {
+        LocalDate desde = LocalDate.of(2025, 5, 1);
+        LocalDate hasta = LocalDate.of(2025, 5, 31);
+        ResumenVentas resumen = new ResumenVentas(desde, hasta, null, 3, 7, 150.0,
+            List.of(new VentaDia(LocalDate.of(2025, 5, 24), 3, 7, 150.0)));
+        when(ventaDiariaService.consultar(desde, hasta, null)).thenReturn(resumen);
+
+        mockMvc.perform(get("/api/v1/pedidos/ventas-diarias?desde=2025-05-01&hasta=2025-05-31"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.pedidos").value(3))
+            .andExpect(jsonPath("$.dias[0].fecha").value("2025-05-24"))
+            .andExpect(jsonPath("$.dias[0].ingresos").value(150.0));
+    }
+
+    @Test
+    public void testObtenerVentasDiariasRangoInvalido() throws Exception {
+        mockMvc.perform(get("/api/v1/pedidos/ventas-diarias?desde=2025-06-01&hasta=2025-05-01"))
+            .andExpect(status().isBadRequest());
+
+        verify(ventaDiariaService, never()).consultar(any(), any(), any());
+    }
+
     @Test
     public void testContarPedidosPorCliente() throws Exception {
         when(pedidoService.contarPedidosPorCliente(2L)).thenReturn(5L);
@@ -142,6 +522,14 @@ public class PedidoControllerTest {
                 .andExpect(jsonPath("_embedded.pedidoList[0].id").value(1));
     }
 
+    @Test
+    public void testObtenerUltimosPedidosEnCbor() throws Exception {
+        when(pedidoService.obtenerUltimosPedidos()).thenReturn(List.of(pedido));
+
+        JsonNode listado = leerCbor(get("/api/v1/pedidos/ultimos"));
+        assertEquals(1, listado.at("/content/0/id").asLong());
+    }
+
 
     @Test
     public void testCrearPedido() throws Exception {
@@ -157,19 +545,105 @@ public class PedidoControllerTest {
                 .andExpect(jsonPath("id").value(1));
     }
 
+    @Test
+    public void testCrearPedidoReintentoConIdempotencyKey() throws Exception {
+        when(idempotenciaPedidos.crear(eq("clave-1"), any(Pedido.class)))
+            .thenReturn(new IdempotenciaPedidos.Respuesta("{\"id\":1}", true));
+
+        mockMvc.perform(post("/api/v1/pedidos")
+                        .header("Idempotency-Key", "clave-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(pedido)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("id").value(1));
+        verify(pedidoService, never()).guardarOActualizarPedido(any(Pedido.class));
+    }
+
+    @Test
+    public void testCrearPedidoIdempotencyKeyConOtroPedido() throws Exception {
+        when(idempotenciaPedidos.crear(eq("clave-1"), any(Pedido.class)))
+            .thenThrow(new ClaveIdempotenciaReutilizadaException("clave-1"));
+
+        mockMvc.perform(post("/api/v1/pedidos")
+                        .header("Idempotency-Key", "clave-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(pedido)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+
+    @Test
+    public void testCrearPedidosMasivoParcial() throws Exception {
+        ResultadoCargaMasiva resultado = new ResultadoCargaMasiva(2, 1, 1, List.of(
+            ResultadoItemCarga.creado(0, 1L),
+            ResultadoItemCarga.fallido(1, "La fecha es obligatoria.")));
+        when(cargaMasivaPedidoService.cargarPedidos(any())).thenReturn(resultado);
+
+        mockMvc.perform(post("/api/v1/pedidos/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(pedido, new Pedido()))))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("creados").value(1))
+                .andExpect(jsonPath("resultados[1].error").value("La fecha es obligatoria."));
+    }
+
+    @Test
+    public void testCrearPedidosMasivoVacio() throws Exception {
+        mockMvc.perform(post("/api/v1/pedidos/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testActualizarProducto() throws Exception {
+        when(pedidoService.actualizarProductoPedido(1L, 8L, 3, null)).thenReturn(pedido);
+
+        mockMvc.perform(patch("/api/v1/pedidos/1/productos/8")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"cantidad\": 3}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(1));
+    }
+
+    @Test
+    public void testActualizarProductoCantidadNegativa() throws Exception {
+        mockMvc.perform(patch("/api/v1/pedidos/1/productos/8")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"cantidad\": -1}"))
+            .andExpect(status().isBadRequest());
+
+        verify(pedidoService, never()).actualizarProductoPedido(any(), any(), anyInt(), any());
+    }
 
     @Test
     public void testEliminarPedido() throws Exception {
         // Simula la eliminación sin errores
-        doNothing().when(pedidoService).eliminarPedido(1L);
+        doNothing().when(pedidoService).eliminarPedido(1L, null);
 
         mockMvc.perform(delete("/api/v1/pedidos/1"))
                 .andExpect(status().isNoContent());
 
         // Verifica que el servicio fue llamado exactamente una vez
-        verify(pedidoService, times(1)).eliminarPedido(1L);
+        verify(pedidoService, times(1)).eliminarPedido(1L, null);
     }
 
-}
+    @Test
+    public void testEliminarPedidoConVersionDesactualizada() throws Exception {
+        doThrow(new ObjectOptimisticLockingFailureException(Pedido.class, 1L))
+            .when(pedidoService).eliminarPedido(1L, 2L);
 
+        mockMvc.perform(delete("/api/v1/pedidos/1").header("If-Match", "\"2\""))
+            .andExpect(status().isPreconditionFailed());
+    }
 
+    // Pide la respuesta en CBOR y la decodifica
+    private JsonNode leerCbor(MockHttpServletRequestBuilder peticion) throws Exception {
+        byte[] cuerpo = mockMvc.perform(peticion.accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        return new CBORMapper().readTree(cuerpo);
+    }
+}
@@ -0,0 +1,74 @@
+package com.Vineyard.microservicio.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.Vineyard.microservicio.model.Pedido;
+
+//Una base con pedidos de antes de las migraciones (ids 1 a 60, por IDENTITY) recibe la secuencia de V2:
+//los pedidos nuevos no deben repetir ids existentes. Base propia, para no compartir la secuencia con otras pruebas.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:pedidos-migracion;DB_CLOSE_DELAY=-1")
+public class MigracionSecuenciaPedidoTest {
+
+    private static final int PEDIDOS_EXISTENTES = 60;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TestConfiguration
+    static class MigrarConPedidosExistentes {
+
+        // Migra hasta V1, carga los pedidos existentes y recién después aplica el resto
+        @Bean
+        FlywayMigrationStrategy migrarConPedidos() {
+            return flyway -> {
+                Flyway.configure().configuration(flyway.getConfiguration()).target("1").load().migrate();
+                JdbcTemplate jdbc = new JdbcTemplate(flyway.getConfiguration().getDataSource());
+                for (int i = 1; i <= PEDIDOS_EXISTENTES; i++) {
+                    jdbc.update("insert into pedido (cliente_id, fecha, total) values (?, ?, ?)", 1L, LocalDate.of(2025, 5, 24), 10.0);
+                }
+                flyway.migrate();
+            };
+        }
+    }
+
+    @Test
+    public void testPedidosNuevosNoRepitenIdsExistentes() {
+        assertEquals(PEDIDOS_EXISTENTES, jdbcTemplate.queryForObject("select max(id) from pedido", Long.class));
+
+        List<Pedido> nuevos = pedidoRepository.saveAllAndFlush(List.of(nuevoPedido(), nuevoPedido(), nuevoPedido()));
+
+        for (Pedido pedido : nuevos) {
+            assertTrue(pedido.getId() > PEDIDOS_EXISTENTES, "id repetido: " + pedido.getId());
+        }
+        assertEquals(PEDIDOS_EXISTENTES + 3L, pedidoRepository.count());
+    }
+
+    private static Pedido nuevoPedido() {
+        Pedido pedido = new Pedido();
+        pedido.setClienteId(2L);
+        pedido.setFecha(LocalDate.of(2025, 5, 25));
+        return pedido;
+    }
+}
@@ -0,0 +1,131 @@
+package com.Vineyard.microservicio.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Vineyard.microservicio.config.CacheConfig;
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.model.PedidoProductoId;
+
+import jakarta.persistence.EntityManagerFactory;
+
+//La caché de segundo nivel se actualiza al confirmar, por eso la prueba no corre dentro de una transacción.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class PedidoCacheSegundoNivelTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2025, 5, 24);
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    @AfterEach
+    void limpiar() {
+        pedidoRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    public void testFindByIdSeArmaDesdeLaCache() {
+        Long id = crearPedido(FECHA).getId();
+        leerConProductos(id);
+
+        estadisticas.clear();
+        Pedido pedido = leerConProductos(id);
+
+        assertEquals(2, pedido.getProductos().size());
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+        assertTrue(estadisticas.getCacheRegionStatistics(CacheConfig.REGION_PEDIDO).getHitCount() > 0);
+    }
+
+    @Test
+    public void testFindByIdVeLaVersionGuardada() {
+        Pedido pedido = crearPedido(FECHA);
+        pedidoRepository.findById(pedido.getId());
+
+        pedido = pedidoRepository.findById(pedido.getId()).orElseThrow();
+        pedido.setTotal(500.0);
+        pedidoRepository.save(pedido);
+
+        estadisticas.clear();
+        Pedido leido = pedidoRepository.findById(pedido.getId()).orElseThrow();
+        assertEquals(500.0, leido.getTotal());
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testConsultaHistoricaSeInvalidaAlGuardar() {
+        crearPedido(FECHA);
+        crearPedido(FECHA);
+        pedidoRepository.findHistoricosByFecha(FECHA);
+
+        estadisticas.clear();
+        List<Pedido> pedidos = pedidoRepository.findHistoricosByFecha(FECHA);
+        assertEquals(2, pedidos.size());
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+        assertEquals(1, estadisticas.getQueryRegionStatistics(CacheConfig.REGION_PEDIDOS_HISTORICOS).getHitCount());
+
+        // Un pedido nuevo en la tabla invalida el resultado guardado
+        crearPedido(FECHA);
+        estadisticas.clear();
+        assertEquals(3, pedidoRepository.findHistoricosByFecha(FECHA).size());
+        assertTrue(estadisticas.getPrepareStatementCount() > 0);
+    }
+
+    // Como PedidoService.findById: los productos se inicializan dentro de la transacción
+    private Pedido leerConProductos(Long id) {
+        return transactionTemplate.execute(estado -> {
+            Pedido pedido = pedidoRepository.findById(id).orElseThrow();
+            Hibernate.initialize(pedido.getProductos());
+            return pedido;
+        });
+    }
+
+    private Pedido crearPedido(LocalDate fecha) {
+        Pedido pedido = new Pedido();
+        pedido.setClienteId(1L);
+        pedido.setFecha(fecha);
+        for (long productoId = 1; productoId <= 2; productoId++) {
+            PedidoProducto producto = new PedidoProducto();
+            producto.setId(new PedidoProductoId(null, productoId));
+            producto.setCantidad(1);
+            producto.setPedido(pedido);
+            pedido.getProductos().add(producto);
+        }
+        return pedidoRepository.save(pedido);
+    }
+}
@@ -0,0 +1,135 @@
+package com.Vineyard.microservicio.repository;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.Vineyard.microservicio.model.Pedido;
+
+//Ejecuta cada consulta de los repositorios contra H2 (esquema de las migraciones), captura el SQL que genera
+//Hibernate y comprueba con EXPLAIN que usa el índice esperado y no recorre ninguna tabla completa.
+//findAllResumenes y findResumenes(Pageable) leen la tabla entera a propósito y no se incluyen.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+    + "com.Vineyard.microservicio.repository.PedidoRepositoryIndicesTest$RegistroSql")
+public class PedidoRepositoryIndicesTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2025, 5, 24);
+    private static final String INDICE_CLIENTE = "PEDIDO_CLIENTE_ID_IDX";
+    private static final String INDICE_FECHA = "PEDIDO_FECHA_ID_IDX";
+    private static final String CLAVE_PRIMARIA = "PRIMARY_KEY";
+    private static final String INDICE_VENTAS_FECHA = "VENTA_DIARIA_CLIENTE_FECHA_IDX";
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private VentaDiariaRepository ventaDiariaRepository;
+
+    @Autowired
+    private VentaDiariaClienteRepository ventaDiariaClienteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testConsultasPorCliente() {
+        assertAll(
+            usaIndice(INDICE_CLIENTE, () -> pedidoRepository.findByClienteId(1L)),
+            usaIndice(INDICE_CLIENTE, () -> pedidoRepository.countByClienteId(1L)),
+            usaIndice(INDICE_CLIENTE, () -> pedidoRepository.findResumenesByClienteId(1L)),
+            usaIndice(INDICE_CLIENTE, () -> pedidoRepository.countByClienteIdIn(List.of(1L, 2L, 3L))));
+    }
+
+    @Test
+    public void testConsultasPorFecha() {
+        assertAll(
+            usaIndice(INDICE_FECHA, () -> pedidoRepository.findByFecha(FECHA)),
+            usaIndice(INDICE_FECHA, () -> pedidoRepository.findByFechaBetween(FECHA, FECHA.plusDays(7))),
+            usaIndice(INDICE_FECHA, () -> {
+                try (Stream<Pedido> pedidos = pedidoRepository.streamByFechaBetweenOrderByIdAsc(FECHA, FECHA.plusDays(7))) {
+                    pedidos.count();
+                }
+            }),
+            usaIndice(INDICE_FECHA, () -> pedidoRepository.findResumenesByFecha(FECHA)),
+            usaIndice(INDICE_FECHA, () -> pedidoRepository.findResumenesByFechaBetween(FECHA, FECHA.plusDays(7))),
+            usaIndice(INDICE_FECHA, () -> pedidoRepository.findAllByOrderByFechaDescIdDesc(PageRequest.of(0, 10))));
+    }
+
+    @Test
+    public void testConsultasPorId() {
+        assertAll(
+            usaIndice(CLAVE_PRIMARIA, () -> pedidoRepository.findById(1L)),
+            usaIndice(CLAVE_PRIMARIA, () -> pedidoRepository.findByIdIn(List.of(1L, 2L, 3L))),
+            usaIndice(CLAVE_PRIMARIA, () -> pedidoRepository.findEstadoById(1L)),
+            usaIndice(CLAVE_PRIMARIA, () -> pedidoRepository.findVersionById(1L)),
+            usaIndice(CLAVE_PRIMARIA, () -> pedidoRepository.findByIdGreaterThanOrderByIdAsc(1L, PageRequest.of(0, 10))),
+            usaIndice(CLAVE_PRIMARIA, () -> pedidoRepository.findByIdLessThanOrderByIdDesc(100L, PageRequest.of(0, 10))),
+            usaIndice(CLAVE_PRIMARIA, () -> pedidoRepository.findResumenesByIdGreaterThan(1L, PageRequest.of(0, 10))),
+            usaIndice(CLAVE_PRIMARIA, () -> pedidoRepository.findResumenesByIdLessThan(100L, PageRequest.of(0, 10))));
+    }
+
+    @Test
+    public void testConsultasDeVentas() {
+        assertAll(
+            usaIndice(CLAVE_PRIMARIA, () -> ventaDiariaRepository.findByFechaBetweenOrderByFechaAsc(FECHA, FECHA.plusDays(7))),
+            // La clave de venta_diaria_cliente empieza por cliente_id: la condición cubre las dos columnas
+            usaIndice(CLAVE_PRIMARIA + ".*CLIENTE_ID = \\?1\\s+AND FECHA >= \\?2",
+                () -> ventaDiariaClienteRepository.findByIdClienteIdAndIdFechaBetweenOrderByIdFechaAsc(1L, FECHA, FECHA.plusDays(7))),
+            usaIndice(INDICE_VENTAS_FECHA, () -> ventaDiariaClienteRepository.findTopPorPedidos(FECHA, FECHA.plusDays(7), PageRequest.of(0, 10))),
+            usaIndice(INDICE_VENTAS_FECHA, () -> ventaDiariaClienteRepository.findTopPorIngresos(FECHA, FECHA.plusDays(7), PageRequest.of(0, 10))));
+    }
+
+    /*
+     * Ejecuta la consulta y revisa el plan de cada SELECT que emitió: debe nombrar el índice esperado
+     * (una expresión regular sobre el plan) y ninguna tabla puede leerse con tableScan.
+     */
+    private Executable usaIndice(String indice, Runnable consulta) {
+        RegistroSql.SENTENCIAS.clear();
+        consulta.run();
+        List<String> sentencias = new ArrayList<>(RegistroSql.SENTENCIAS);
+        return () -> {
+            assertFalse(sentencias.isEmpty(), "La consulta no emitió SQL");
+            String plan = String.join("\n", sentencias.stream().map(this::explicar).toList());
+            assertTrue(plan.matches("(?s).*" + indice + ".*"), "Se esperaba el índice " + indice + ":\n" + plan);
+            assertFalse(plan.contains(".tableScan"), "Recorre una tabla completa:\n" + plan);
+        };
+    }
+
+    private String explicar(String sql) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class);
+    }
+
+    // Guarda los SELECT que Hibernate envía a la base
+    public static class RegistroSql implements StatementInspector {
+
+        static final List<String> SENTENCIAS = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.toLowerCase(Locale.ROOT).startsWith("select")) {
+                SENTENCIAS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.Vineyard.microservicio.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.Vineyard.microservicio.dto.PedidoResumen;
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.model.PedidoProductoId;
+
+//Prueba las consultas del repositorio contra H2 y cuenta las sentencias SQL que emite cada una.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+public class PedidoRepositoryTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2025, 5, 24);
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void testFindByClienteIdSentenciasConstantes() {
+        crearPedidos(1L, FECHA, 3);
+        crearPedidos(2L, FECHA, 30);
+
+        long pocos = contarSentencias(() -> pedidoRepository.findByClienteId(1L));
+        long muchos = contarSentencias(() -> pedidoRepository.findByClienteId(2L));
+
+        assertEquals(1, pocos);
+        assertEquals(pocos, muchos);
+    }
+
+    @Test
+    public void testFindByFechaSentenciasConstantes() {
+        crearPedidos(1L, FECHA, 3);
+        crearPedidos(1L, FECHA.plusDays(1), 30);
+
+        long pocos = contarSentencias(() -> pedidoRepository.findByFecha(FECHA));
+        long muchos = contarSentencias(() -> pedidoRepository.findByFecha(FECHA.plusDays(1)));
+
+        assertEquals(1, pocos);
+        assertEquals(pocos, muchos);
+    }
+
+    @Test
+    public void testFindByFechaBetweenSentenciasConstantes() {
+        crearPedidos(1L, FECHA, 3);
+        crearPedidos(1L, FECHA.plusDays(10), 30);
+
+        long pocos = contarSentencias(() -> pedidoRepository.findByFechaBetween(FECHA, FECHA));
+        long muchos = contarSentencias(() -> pedidoRepository.findByFechaBetween(FECHA, FECHA.plusDays(10)));
+
+        assertEquals(1, pocos);
+        assertEquals(pocos, muchos);
+    }
+
+    @Test
+    public void testConsultasPaginadasSentenciasConstantes() {
+        crearPedidos(1L, FECHA, 3);
+        long pocos = contarSentencias(() -> pedidoRepository.findAll(PageRequest.of(0, 50, Sort.by("id"))).getContent());
+
+        crearPedidos(2L, FECHA, 40);
+        long muchos = contarSentencias(() -> pedidoRepository.findAll(PageRequest.of(0, 50, Sort.by("id"))).getContent());
+        long cursor = contarSentencias(() -> pedidoRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.ofSize(50)));
+
+        // Página + conteo + un lote de productos
+        assertEquals(pocos, muchos);
+        assertEquals(2, cursor);
+    }
+
+    @Test
+    public void testResumenesSinCargarEntidades() {
+        crearPedidos(1L, FECHA, 3);
+        crearPedidos(2L, FECHA.plusDays(1), 30);
+        entityManager.clear();
+        estadisticas.clear();
+
+        List<PedidoResumen> porCliente = pedidoRepository.findResumenesByClienteId(2L);
+        List<PedidoResumen> pagina = pedidoRepository.findResumenes(PageRequest.of(1, 10, Sort.by("id"))).getContent();
+        List<PedidoResumen> cursor = pedidoRepository.findResumenesByIdLessThan(porCliente.get(5).getId(), PageRequest.ofSize(4));
+
+        assertEquals(30, porCliente.size());
+        assertEquals(2, porCliente.get(0).getLineas());
+        assertEquals(FECHA.plusDays(1), porCliente.get(0).getFecha());
+        assertEquals(10, pagina.size());
+        assertEquals(porCliente.get(4).getId(), cursor.get(0).getId());
+        // Cuatro sentencias (la página hace además el conteo), sin entidades ni colecciones en el contexto
+        assertEquals(4, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(0, estadisticas.getCollectionLoadCount());
+    }
+
+    /*
+     * Ejecuta la consulta con el contexto de persistencia vacío y recorre los productos de cada pedido,
+     * como lo hace Jackson al serializar. Devuelve la cantidad de sentencias preparadas.
+     */
+    private long contarSentencias(Supplier<List<Pedido>> consulta) {
+        entityManager.clear();
+        estadisticas.clear();
+
+        List<Pedido> pedidos = consulta.get();
+        int lineas = 0;
+        for (Pedido pedido : pedidos) {
+            for (PedidoProducto producto : pedido.getProductos()) {
+                lineas += producto.getCantidad();
+            }
+        }
+        assertEquals(pedidos.size() * 3, lineas);
+
+        return estadisticas.getPrepareStatementCount();
+    }
+
+    private void crearPedidos(Long clienteId, LocalDate fecha, int cantidad) {
+        for (int i = 0; i < cantidad; i++) {
+            Pedido pedido = new Pedido();
+            pedido.setClienteId(clienteId);
+            pedido.setFecha(fecha);
+            for (long productoId = 1; productoId <= 2; productoId++) {
+                PedidoProducto producto = new PedidoProducto();
+                producto.setId(new PedidoProductoId(null, productoId));
+                producto.setCantidad((int) productoId);
+                producto.setPedido(pedido);
+                pedido.getProductos().add(producto);
+            }
+            entityManager.persist(pedido);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
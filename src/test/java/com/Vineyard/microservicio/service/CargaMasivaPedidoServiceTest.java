@@ -0,0 +1,127 @@
+package com.Vineyard.microservicio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.Vineyard.microservicio.dto.ResultadoCargaMasiva;
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.model.PedidoProductoId;
+import com.Vineyard.microservicio.repository.PedidoRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+//Cada lote confirma su propia transacción, por eso la prueba no corre dentro de una.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@TestPropertySource(properties = "pedidos.precios.calcular-total=true")
+@Import({CargaMasivaPedidoService.class, CatalogoPrecios.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CargaMasivaPedidoServiceTest {
+
+    @Autowired
+    private CargaMasivaPedidoService cargaMasivaPedidoService;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CatalogoPrecios catalogoPrecios;
+
+    @BeforeEach
+    void setUp() {
+        catalogoPrecios.reemplazar(new long[] {1L, 2L, 5L}, new double[] {10.0, 2.5, 1.0}, 3);
+    }
+
+    @AfterEach
+    void limpiar() {
+        pedidoRepository.deleteAll();
+    }
+
+    @Test
+    public void testCargarPedidosUsaLotesJdbc() {
+        List<Pedido> pedidos = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            pedidos.add(nuevoPedido(1L, 1L, 2L));
+        }
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        ResultadoCargaMasiva resultado = cargaMasivaPedidoService.cargarPedidos(pedidos);
+
+        assertEquals(40, resultado.getCreados());
+        assertEquals(40, pedidoRepository.count());
+        // Total calculado en el servidor: 10.0 + 2.5
+        assertEquals(12.5, pedidoRepository.findById(resultado.getResultados().get(0).getId()).get().getTotal());
+        // 120 filas: si cada INSERT fuera su propia sentencia habría al menos 120
+        assertTrue(estadisticas.getPrepareStatementCount() < 10,
+            "Sentencias preparadas: " + estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testCargarPedidosAislaErrores() {
+        Pedido sinFecha = nuevoPedido(1L, 1L);
+        sinFecha.setFecha(null);
+        // Producto repetido: viola la clave primaria de pedido_productos y hace fallar el lote
+        Pedido productoRepetido = nuevoPedido(2L, 5L, 5L);
+
+        ResultadoCargaMasiva resultado = cargaMasivaPedidoService.cargarPedidos(
+            List.of(nuevoPedido(1L, 1L), sinFecha, productoRepetido, nuevoPedido(3L, 1L, 2L)));
+
+        assertEquals(4, resultado.getRecibidos());
+        assertEquals(2, resultado.getCreados());
+        assertEquals(2, resultado.getFallidos());
+        assertTrue(resultado.getResultados().get(0).isCreado());
+        assertNotNull(resultado.getResultados().get(0).getId());
+        assertFalse(resultado.getResultados().get(1).isCreado());
+        assertFalse(resultado.getResultados().get(2).isCreado());
+        assertTrue(resultado.getResultados().get(3).isCreado());
+        assertEquals(2, pedidoRepository.count());
+    }
+
+    @Test
+    public void testCargarPedidosRechazaProductoSinPrecio() {
+        ResultadoCargaMasiva resultado = cargaMasivaPedidoService.cargarPedidos(
+            List.of(nuevoPedido(1L, 1L), nuevoPedido(1L, 99L)));
+
+        assertEquals(1, resultado.getCreados());
+        assertEquals("El producto con ID 99 no tiene precio en el catálogo.", resultado.getResultados().get(1).getError());
+    }
+
+    private static Pedido nuevoPedido(Long clienteId, Long... productoIds) {
+        Pedido pedido = new Pedido();
+        pedido.setClienteId(clienteId);
+        pedido.setFecha(LocalDate.of(2025, 5, 24));
+        for (Long productoId : productoIds) {
+            PedidoProducto producto = new PedidoProducto();
+            producto.setId(new PedidoProductoId(null, productoId));
+            producto.setCantidad(1);
+            pedido.getProductos().add(producto);
+        }
+        return pedido;
+    }
+}
@@ -0,0 +1,94 @@
+package com.Vineyard.microservicio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.model.PedidoProductoId;
+
+//Prueba unitaria del catálogo en memoria, sin base de datos.
+public class CatalogoPreciosTest {
+
+    private CatalogoPrecios catalogo;
+
+    @BeforeEach
+    void setUp() {
+        catalogo = new CatalogoPrecios();
+        ReflectionTestUtils.setField(catalogo, "calcularTotal", true);
+        catalogo.reemplazar(new long[] {1L, 2L, 8L}, new double[] {1000.0, 250.5, 19.99}, 3);
+    }
+
+    @Test
+    public void testCalcularTotal() {
+        double total = catalogo.calcularTotal(List.of(linea(1L, 2), linea(8L, 3)));
+
+        assertEquals(2059.97, total);
+    }
+
+    @Test
+    public void testActualizarTotalReemplazaElDelCliente() {
+        Pedido pedido = new Pedido();
+        pedido.setTotal(1.0);
+        pedido.getProductos().add(linea(2L, 2));
+
+        catalogo.actualizarTotal(pedido);
+
+        assertEquals(501.0, pedido.getTotal());
+    }
+
+    @Test
+    public void testSinCalcularTotalSeConservaElDelCliente() {
+        CatalogoPrecios porDefecto = new CatalogoPrecios();
+        Pedido pedido = new Pedido();
+        pedido.setTotal(1.0);
+        pedido.getProductos().add(linea(3L, 2));
+
+        // Sin catálogo y sin pedidos.precios.calcular-total no se rechaza el pedido
+        porDefecto.actualizarTotal(pedido);
+
+        assertEquals(1.0, pedido.getTotal());
+    }
+
+    @Test
+    public void testProductoSinPrecio() {
+        ProductoSinPrecioException e = assertThrows(ProductoSinPrecioException.class,
+            () -> catalogo.calcularTotal(List.of(linea(1L, 1), linea(3L, 1))));
+
+        assertEquals(3L, e.getProductoId());
+    }
+
+    @Test
+    public void testMuchosProductos() {
+        int cantidad = 100_000;
+        long[] ids = new long[cantidad];
+        double[] precios = new double[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            ids[i] = i * 7L;
+            precios[i] = i;
+        }
+
+        catalogo.reemplazar(ids, precios, cantidad);
+
+        assertEquals(cantidad, catalogo.cantidadProductos());
+        for (int i = 0; i < cantidad; i++) {
+            assertEquals(i, catalogo.precio(i * 7L));
+        }
+        assertTrue(Double.isNaN(catalogo.precio(8L)));
+        assertTrue(Double.isNaN(catalogo.precio(Long.MIN_VALUE)));
+    }
+
+    private static PedidoProducto linea(Long productoId, int cantidad) {
+        PedidoProducto producto = new PedidoProducto();
+        producto.setId(new PedidoProductoId(null, productoId));
+        producto.setCantidad(cantidad);
+        return producto;
+    }
+}
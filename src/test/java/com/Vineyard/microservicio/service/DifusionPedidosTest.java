@@ -0,0 +1,233 @@
+package com.Vineyard.microservicio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.Vineyard.microservicio.event.PedidoEliminadoEvent;
+import com.Vineyard.microservicio.event.PedidoGuardadoEvent;
+import com.Vineyard.microservicio.model.Pedido;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+//Prueba unitaria de la difusión: los envíos quedan pendientes hasta que la prueba los ejecuta, como con un cliente lento.
+public class DifusionPedidosTest {
+
+    private final List<Runnable> envios = new ArrayList<>();
+
+    private DifusionPedidos difusion;
+
+    @BeforeEach
+    void setUp() {
+        difusion = difusion(3, 10, envios::add);
+    }
+
+    @Test
+    public void testTodosLosSuscriptoresRecibenLosEventosEnOrden() {
+        EmisorPrueba primero = new EmisorPrueba();
+        EmisorPrueba segundo = new EmisorPrueba();
+        difusion.registrar(primero, primero.conexion);
+        difusion.registrar(segundo, segundo.conexion);
+
+        difusion.pedidoGuardado(new PedidoGuardadoEvent(pedido(1L), null));
+        difusion.pedidoEliminado(new PedidoEliminadoEvent(1L, null));
+        enviar();
+
+        for (EmisorPrueba emisor : List.of(primero, segundo)) {
+            assertEquals(3, emisor.eventos.size());
+            assertTrue(emisor.eventos.get(0).contains(":conectado"));
+            assertTrue(emisor.eventos.get(1).startsWith("id:1\nevent:pedido\ndata:{\"id\":1,"));
+            assertEquals("id:2\nevent:eliminado\ndata:{\"id\":1}\n\n", emisor.eventos.get(2));
+        }
+    }
+
+    @Test
+    public void testSuscriptorLentoPierdeLosEventosMasViejos() {
+        EmisorPrueba emisor = new EmisorPrueba();
+        difusion.registrar(emisor, emisor.conexion);
+
+        // Buffer de 3: "conectado" y los pedidos 1 y 2 se descartan
+        for (long id = 1; id <= 5; id++) {
+            difusion.pedidoGuardado(new PedidoGuardadoEvent(pedido(id), null));
+        }
+        // Un solo envío programado aunque se publicaron varios eventos
+        assertEquals(1, envios.size());
+        enviar();
+
+        assertEquals(4, emisor.eventos.size());
+        assertEquals("event:perdidos\ndata:3\n\n", emisor.eventos.get(0));
+        assertTrue(emisor.eventos.get(1).startsWith("id:3\n"));
+        assertTrue(emisor.eventos.get(3).startsWith("id:5\n"));
+    }
+
+    @Test
+    public void testMaximoDeSuscriptores() {
+        DifusionPedidos limitada = difusion(3, 1, envios::add);
+
+        assertTrue(limitada.suscribir(new MockHttpServletResponse()).isPresent());
+        assertFalse(limitada.suscribir(new MockHttpServletResponse()).isPresent());
+        assertEquals(1, limitada.getSuscriptores());
+    }
+
+    @Test
+    public void testClienteDesconectadoSeQuita() {
+        EmisorPrueba desconectado = new EmisorPrueba();
+        desconectado.desconectado = true;
+        EmisorPrueba conectado = new EmisorPrueba();
+        difusion.registrar(desconectado, desconectado.conexion);
+        difusion.registrar(conectado, conectado.conexion);
+        enviar();
+
+        assertEquals(1, difusion.getSuscriptores());
+        difusion.pedidoGuardado(new PedidoGuardadoEvent(pedido(1L), null));
+        enviar();
+        assertEquals(2, conectado.eventos.size());
+
+        // Al detener la aplicación no se vuelve a cerrar el que ya se cerró por el error
+        difusion.cerrar();
+        assertEquals(1, desconectado.cierres.get());
+        assertEquals(1, conectado.cierres.get());
+    }
+
+    @Test
+    public void testSuscriptorQueSiemprePierdeEventosSeDesconecta() {
+        EmisorPrueba emisor = new EmisorPrueba();
+        difusion.registrar(emisor, emisor.conexion);
+
+        for (int turno = 1; turno <= 3; turno++) {
+            for (long id = 1; id <= 5; id++) {
+                difusion.pedidoGuardado(new PedidoGuardadoEvent(pedido(id), null));
+            }
+            enviar();
+        }
+
+        assertEquals(0, difusion.getSuscriptores());
+        // Recibió los dos primeros turnos; en el tercero se lo desconecta sin escribir
+        assertEquals(8, emisor.eventos.size());
+        assertEquals(1, emisor.cierres.get());
+    }
+
+    @Test
+    public void testEscrituraBloqueadaNoDetieneALosDemas() throws Exception {
+        // Un solo hilo de envío: mientras la escritura bloqueada lo retenga nadie más recibe eventos
+        ExecutorService hilo = Executors.newSingleThreadExecutor();
+        try {
+            DifusionPedidos conHilo = difusion(3, 10, hilo);
+            EmisorPrueba bloqueado = new EmisorPrueba();
+            bloqueado.bloqueo = new CountDownLatch(1);
+            EmisorPrueba conectado = new EmisorPrueba();
+            conHilo.registrar(bloqueado, bloqueado.conexion);
+            conHilo.registrar(conectado, conectado.conexion);
+            assertTrue(bloqueado.escribiendo.await(5, TimeUnit.SECONDS));
+
+            Thread.sleep(150);
+            conHilo.revisarEscrituras();
+            conHilo.pedidoGuardado(new PedidoGuardadoEvent(pedido(1L), null));
+
+            hilo.submit(() -> { }).get(5, TimeUnit.SECONDS);
+            assertTrue(bloqueado.cerrada);
+            assertEquals(1, conHilo.getSuscriptores());
+            assertEquals(2, conectado.eventos.size());
+            assertTrue(conectado.eventos.get(1).startsWith("id:1\n"));
+            assertTrue(bloqueado.eventos.isEmpty());
+            // Falló la escritura y además se lo descartó por lento: el emitter se cierra una sola vez
+            assertEquals(1, bloqueado.cierres.get());
+            // Otra revisión no vuelve a cerrar la conexión
+            conHilo.revisarEscrituras();
+            assertEquals(1, bloqueado.cortes.get());
+        } finally {
+            hilo.shutdownNow();
+        }
+    }
+
+    private void enviar() {
+        while (!envios.isEmpty()) {
+            envios.remove(0).run();
+        }
+    }
+
+    private static DifusionPedidos difusion(int buffer, int maximo, Executor envios) {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        return new DifusionPedidos(objectMapper, buffer, maximo, Duration.ofMinutes(1), Duration.ofMillis(100), envios);
+    }
+
+    private static Pedido pedido(Long id) {
+        Pedido pedido = new Pedido();
+        pedido.setId(id);
+        pedido.setClienteId(7L);
+        pedido.setFecha(LocalDate.of(2025, 5, 24));
+        return pedido;
+    }
+
+    // Guarda cada evento como el texto que llegaría al cliente y cuenta las veces que se cierra
+    private static class EmisorPrueba extends SseEmitter {
+
+        private final List<String> eventos = new ArrayList<>();
+        private final CountDownLatch escribiendo = new CountDownLatch(1);
+        private final AtomicInteger cierres = new AtomicInteger();
+        private final AtomicInteger cortes = new AtomicInteger();
+        private boolean desconectado;
+        // Si no es null, cada escritura espera hasta que se cierre la conexión, como un socket que no se vacía
+        private CountDownLatch bloqueo;
+        private volatile boolean cerrada;
+
+        private final Closeable conexion = () -> {
+            cortes.incrementAndGet();
+            cerrada = true;
+            if (bloqueo != null) {
+                bloqueo.countDown();
+            }
+        };
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> datos) throws IOException {
+            if (desconectado) {
+                throw new IOException("Broken pipe");
+            }
+            escribiendo.countDown();
+            if (bloqueo != null) {
+                try {
+                    bloqueo.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (cerrada) {
+                throw new IOException("Connection closed");
+            }
+            eventos.add(datos.stream().map(dato -> dato.getData().toString()).collect(Collectors.joining()));
+        }
+
+        @Override
+        public void complete() {
+            cierres.incrementAndGet();
+            super.complete();
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            cierres.incrementAndGet();
+            super.completeWithError(ex);
+        }
+    }
+}
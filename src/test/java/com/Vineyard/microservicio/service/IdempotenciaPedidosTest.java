@@ -0,0 +1,176 @@
+package com.Vineyard.microservicio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.repository.PedidoRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+
+//La clave se guarda en la transacción del pedido, por eso la prueba no corre dentro de una transacción.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({PedidoService.class, UltimosPedidosBuffer.class, CatalogoPrecios.class, IdempotenciaPedidos.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IdempotenciaPedidosTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2025, 5, 24);
+
+    @Autowired
+    private IdempotenciaPedidos idempotencia;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("delete from pedido_idempotencia");
+        pedidoRepository.deleteAll();
+        memoria().invalidateAll();
+    }
+
+    @Test
+    public void testReintentoDevuelveLaRespuestaOriginal() {
+        IdempotenciaPedidos.Respuesta primera = idempotencia.crear("clave-1", nuevoPedido(7L));
+        IdempotenciaPedidos.Respuesta reintento = idempotencia.crear("clave-1", nuevoPedido(7L));
+
+        assertFalse(primera.repetida());
+        assertTrue(reintento.repetida());
+        assertEquals(primera.cuerpo(), reintento.cuerpo());
+        assertEquals(1, pedidoRepository.count());
+    }
+
+    @Test
+    public void testReintentoSinMemoriaLeeLaBase() {
+        IdempotenciaPedidos.Respuesta primera = idempotencia.crear("clave-1", nuevoPedido(7L));
+        // Como un reintento que llega a otra instancia o después de reiniciar
+        memoria().invalidateAll();
+
+        IdempotenciaPedidos.Respuesta reintento = idempotencia.crear("clave-1", nuevoPedido(7L));
+
+        assertTrue(reintento.repetida());
+        assertEquals(primera.cuerpo(), reintento.cuerpo());
+        assertEquals(1, pedidoRepository.count());
+    }
+
+    @Test
+    public void testMismaClaveConOtroPedido() {
+        idempotencia.crear("clave-1", nuevoPedido(7L));
+
+        assertThrows(ClaveIdempotenciaReutilizadaException.class, () -> idempotencia.crear("clave-1", nuevoPedido(8L)));
+        assertEquals(1, pedidoRepository.count());
+    }
+
+    @Test
+    public void testPeticionesSimultaneasCreanUnSoloPedido() throws Exception {
+        int hilos = 8;
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<IdempotenciaPedidos.Respuesta>> respuestas = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                Callable<IdempotenciaPedidos.Respuesta> peticion = () -> {
+                    largada.await();
+                    return idempotencia.crear("clave-1", nuevoPedido(7L));
+                };
+                respuestas.add(ejecutor.submit(peticion));
+            }
+            largada.countDown();
+
+            int creadas = 0;
+            String cuerpo = respuestas.get(0).get().cuerpo();
+            for (Future<IdempotenciaPedidos.Respuesta> respuesta : respuestas) {
+                assertEquals(cuerpo, respuesta.get().cuerpo());
+                creadas += respuesta.get().repetida() ? 0 : 1;
+            }
+            assertEquals(1, creadas);
+            assertEquals(1, pedidoRepository.count());
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    // Vigencia corta: la clave vence mientras su fila sigue en la tabla (la purga corre cada hora)
+    @Nested
+    @TestPropertySource(properties = "pedidos.idempotencia.ttl=PT0.2S")
+    class ClaveVencida {
+
+        // Los del contexto con vigencia corta; los campos de la clase externa son del contexto por defecto
+        @Autowired
+        private IdempotenciaPedidos idempotencia;
+
+        @Autowired
+        private PedidoRepository pedidoRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @AfterEach
+        void limpiar() {
+            jdbcTemplate.update("delete from pedido_idempotencia");
+            pedidoRepository.deleteAll();
+        }
+
+        @Test
+        public void testClaveVencidaSinPurgarCreaOtroPedido() throws Exception {
+            IdempotenciaPedidos.Respuesta primera = idempotencia.crear("clave-1", nuevoPedido(7L));
+            Thread.sleep(300);
+
+            IdempotenciaPedidos.Respuesta segunda = idempotencia.crear("clave-1", nuevoPedido(8L));
+
+            assertFalse(segunda.repetida());
+            assertNotEquals(primera.cuerpo(), segunda.cuerpo());
+            assertEquals(2, pedidoRepository.count());
+            assertEquals(1, jdbcTemplate.queryForObject("select count(*) from pedido_idempotencia", Integer.class));
+            // La clave vuelve a estar vigente con el pedido nuevo
+            assertTrue(idempotencia.crear("clave-1", nuevoPedido(8L)).repetida());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<String, ?> memoria() {
+        return (Cache<String, ?>) ReflectionTestUtils.getField(idempotencia, "respuestas");
+    }
+
+    private static Pedido nuevoPedido(Long clienteId) {
+        Pedido pedido = new Pedido();
+        pedido.setClienteId(clienteId);
+        pedido.setFecha(FECHA);
+        return pedido;
+    }
+}
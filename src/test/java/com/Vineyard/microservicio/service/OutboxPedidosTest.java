@@ -0,0 +1,138 @@
+package com.Vineyard.microservicio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Vineyard.microservicio.config.OutboxConfig;
+import com.Vineyard.microservicio.event.DestinoEventosArchivo;
+import com.Vineyard.microservicio.event.DestinoEventosMemoria;
+import com.Vineyard.microservicio.event.EventoPedido;
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.repository.PedidoRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+//Los eventos se escriben antes de cada commit, por eso la prueba no corre dentro de una transacción.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({PedidoService.class, UltimosPedidosBuffer.class, CatalogoPrecios.class, OutboxPedidos.class,
+    RelayOutboxPedidos.class, OutboxConfig.class})
+@TestPropertySource(properties = {"pedidos.outbox.habilitado=true", "pedidos.outbox.destino=memoria", "pedidos.outbox.lote=2"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OutboxPedidosTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2025, 5, 24);
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private RelayOutboxPedidos relay;
+
+    @Autowired
+    private DestinoEventosMemoria destino;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    @AfterEach
+    void limpiar() {
+        pedidoRepository.deleteAll();
+        jdbcTemplate.update("delete from pedido_evento");
+        destino.limpiar();
+    }
+
+    @Test
+    public void testEventosSeEnvianEnOrdenYSeBorran() throws Exception {
+        Pedido pedido = pedidoService.guardarOActualizarPedido(nuevoPedido(7L));
+        pedidoService.actualizarPedido(pedido.getId(), nuevoPedido(8L));
+        pedidoService.eliminarPedido(pedido.getId());
+        assertEquals(3, pendientes());
+
+        // Lote de 2: dos pasadas dentro de la misma llamada
+        relay.publicarPendientes();
+
+        List<EventoPedido> eventos = destino.getEventos();
+        assertEquals(List.of(EventoPedido.Tipo.CREADO, EventoPedido.Tipo.ACTUALIZADO, EventoPedido.Tipo.ELIMINADO),
+            eventos.stream().map(EventoPedido::tipo).toList());
+        assertEquals(List.of(7L, 8L, 8L), eventos.stream().map(EventoPedido::clienteId).toList());
+        eventos.forEach(evento -> assertEquals(pedido.getId(), evento.pedidoId()));
+        // El evento de la modificación lleva la versión confirmada
+        JsonNode actualizado = objectMapper.readTree(eventos.get(1).datos());
+        assertEquals(1, actualizado.get("version").asLong());
+        assertEquals(0, pendientes());
+    }
+
+    @Test
+    public void testTransaccionRevertidaNoDejaEventos() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            pedidoService.guardarOActualizarPedido(nuevoPedido(7L));
+            estado.setRollbackOnly();
+        });
+
+        assertEquals(0, pendientes());
+    }
+
+    @Test
+    public void testDestinoArchivoEscribeUnaLineaPorEvento(@TempDir Path directorio) throws Exception {
+        DestinoEventosArchivo archivo = new DestinoEventosArchivo(directorio.resolve("eventos.ndjson"), objectMapper);
+        Instant registrado = Instant.parse("2025-05-24T10:15:30Z");
+
+        archivo.publicar(List.of(new EventoPedido(1, EventoPedido.Tipo.CREADO, 5L, 7L, registrado, "{\"id\":5}")));
+        archivo.publicar(List.of(new EventoPedido(2, EventoPedido.Tipo.ELIMINADO, 5L, 7L, registrado, "{\"id\":5}")));
+
+        List<String> lineas = Files.readAllLines(archivo.getArchivo());
+        assertEquals(2, lineas.size());
+        JsonNode primera = objectMapper.readTree(lineas.get(0));
+        assertEquals("CREADO", primera.get("tipo").asText());
+        // datos va como objeto JSON, no como texto
+        assertEquals(5, primera.get("datos").get("id").asLong());
+        assertEquals("ELIMINADO", objectMapper.readTree(lineas.get(1)).get("tipo").asText());
+    }
+
+    private int pendientes() {
+        return jdbcTemplate.queryForObject("select count(*) from pedido_evento", Integer.class);
+    }
+
+    private static Pedido nuevoPedido(Long clienteId) {
+        Pedido pedido = new Pedido();
+        pedido.setClienteId(clienteId);
+        pedido.setFecha(FECHA);
+        return pedido;
+    }
+}
@@ -0,0 +1,195 @@
+package com.Vineyard.microservicio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.model.PedidoProductoId;
+import com.Vineyard.microservicio.repository.PedidoRepository;
+
+//Cuenta las sentencias que genera modificar un pedido existente contra H2.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@TestPropertySource(properties = "pedidos.precios.calcular-total=true")
+@Import({PedidoService.class, UltimosPedidosBuffer.class, CatalogoPrecios.class})
+public class PedidoServiceActualizacionTest {
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private CatalogoPrecios catalogoPrecios;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    private Statistics estadisticas;
+
+    private Long pedidoId;
+
+    @BeforeEach
+    void setUp() {
+        long[] ids = new long[100];
+        double[] precios = new double[100];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+            precios[i] = 10.0;
+        }
+        catalogoPrecios.reemplazar(ids, precios, ids.length);
+
+        // Pedido con los productos 1 a 20, una unidad de cada uno
+        Pedido pedido = new Pedido();
+        pedido.setClienteId(1L);
+        pedido.setFecha(LocalDate.of(2025, 5, 24));
+        for (long productoId = 1; productoId <= 20; productoId++) {
+            pedido.getProductos().add(new PedidoProducto(new PedidoProductoId(null, productoId), pedido, 1));
+        }
+        pedidoId = entityManager.persistAndFlush(pedido).getId();
+        entityManager.clear();
+
+        estadisticas = entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+
+    @Test
+    public void testActualizarPedidoSoloEscribeLoQueCambia() {
+        Pedido datos = new Pedido();
+        datos.setClienteId(1L);
+        datos.setFecha(LocalDate.of(2025, 5, 24));
+        // Mismos productos salvo: el 1 cambia de cantidad, el 20 se quita y se agrega el 21
+        for (long productoId = 1; productoId <= 19; productoId++) {
+            datos.getProductos().add(linea(productoId, productoId == 1 ? 5 : 1));
+        }
+        datos.getProductos().add(linea(21L, 2));
+
+        pedidoService.actualizarPedido(pedidoId, datos);
+        entityManager.flush();
+
+        assertEquals(1, estadisticas.getEntityInsertCount());
+        assertEquals(1, estadisticas.getEntityDeleteCount());
+        // La línea del producto 1 y el total del pedido
+        assertEquals(2, estadisticas.getEntityUpdateCount());
+
+        entityManager.clear();
+        Pedido guardado = entityManager.find(Pedido.class, pedidoId);
+        assertEquals(20, guardado.getProductos().size());
+        assertEquals(250.0, guardado.getTotal());
+    }
+
+    @Test
+    public void testActualizarPedidoSinCambiosNoEscribe() {
+        Pedido datos = new Pedido();
+        datos.setClienteId(1L);
+        datos.setFecha(LocalDate.of(2025, 5, 24));
+        datos.setTotal(200.0);
+        for (long productoId = 1; productoId <= 20; productoId++) {
+            datos.getProductos().add(linea(productoId, 1));
+        }
+        // Calcula el total guardado para que el pedido quede idéntico
+        pedidoService.actualizarPedido(pedidoId, datos);
+        entityManager.flush();
+        entityManager.clear();
+        estadisticas.clear();
+
+        pedidoService.actualizarPedido(pedidoId, datos);
+        entityManager.flush();
+
+        assertEquals(0, estadisticas.getEntityInsertCount());
+        assertEquals(0, estadisticas.getEntityDeleteCount());
+        assertEquals(0, estadisticas.getEntityUpdateCount());
+    }
+
+    @Test
+    public void testActualizarProductoPedido() {
+        pedidoService.actualizarProductoPedido(pedidoId, 3L, 4, null);
+        pedidoService.actualizarProductoPedido(pedidoId, 5L, 0, null);
+        pedidoService.actualizarProductoPedido(pedidoId, 50L, 1, null);
+        entityManager.flush();
+
+        assertEquals(1, estadisticas.getEntityInsertCount());
+        assertEquals(1, estadisticas.getEntityDeleteCount());
+
+        entityManager.clear();
+        Pedido guardado = entityManager.find(Pedido.class, pedidoId);
+        List<PedidoProducto> productos = guardado.getProductos().stream()
+            .sorted(Comparator.comparing(p -> p.getId().getProductoId()))
+            .toList();
+        assertEquals(20, productos.size());
+        assertEquals(4, productos.get(2).getCantidad());
+        assertEquals(50L, productos.get(19).getId().getProductoId());
+        assertEquals(230.0, guardado.getTotal());
+    }
+
+    @Test
+    public void testCambioSoloDeProductosAumentaLaVersion() {
+        // Se cambia el producto 20 por el 21, con el mismo precio: el pedido en sí no cambia
+        Pedido datos = new Pedido();
+        datos.setClienteId(1L);
+        datos.setFecha(LocalDate.of(2025, 5, 24));
+        for (long productoId = 1; productoId <= 21; productoId++) {
+            if (productoId != 20) {
+                datos.getProductos().add(linea(productoId, 1));
+            }
+        }
+        Pedido guardado = pedidoService.actualizarPedido(pedidoId, datos, 0L);
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        assertEquals(1L, guardado.getVersion());
+        assertEquals(1L, pedidoRepository.findVersionById(pedidoId).orElseThrow());
+
+        // La versión 0 ya no es la vigente
+        TestTransaction.start();
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+            () -> pedidoService.actualizarProductoPedido(pedidoId, 1L, 2, 0L));
+        TestTransaction.end();
+
+        TestTransaction.start();
+        pedidoService.eliminarPedido(pedidoId, 1L);
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        assertTrue(pedidoRepository.findVersionById(pedidoId).isEmpty());
+    }
+
+    @Test
+    public void testActualizarPedidoSinProductoId() {
+        Pedido datos = new Pedido();
+        datos.setClienteId(1L);
+        datos.setFecha(LocalDate.of(2025, 5, 24));
+        datos.getProductos().add(new PedidoProducto());
+
+        assertThrows(IllegalArgumentException.class, () -> pedidoService.actualizarPedido(pedidoId, datos));
+    }
+
+    private static PedidoProducto linea(Long productoId, int cantidad) {
+        PedidoProducto producto = new PedidoProducto();
+        producto.setId(new PedidoProductoId(null, productoId));
+        producto.setCantidad(cantidad);
+        return producto;
+    }
+}
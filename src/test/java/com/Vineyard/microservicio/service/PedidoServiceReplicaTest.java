@@ -0,0 +1,121 @@
+package com.Vineyard.microservicio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.Vineyard.microservicio.config.ReplicaConfig;
+import com.Vineyard.microservicio.model.Pedido;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+//Dos bases H2 en memoria: las lecturas de PedidoService deben ir a la réplica y las escrituras a la principal.
+//Sin transacción de prueba: dentro de una transacción de lectura y escritura las lecturas no cambiarían de base.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@TestPropertySource(properties = "pedidos.replica.url=jdbc:h2:mem:pedidos-replica;DB_CLOSE_DELAY=-1")
+@Import({ReplicaConfig.class, PedidoService.class, UltimosPedidosBuffer.class, CatalogoPrecios.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class PedidoServiceReplicaTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2025, 5, 24);
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    @Qualifier("dataSourcePrimaria")
+    private DataSource primaria;
+
+    @Autowired
+    @Qualifier("dataSourceReplica")
+    private DataSource replica;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private JdbcTemplate jdbcPrimaria;
+    private JdbcTemplate jdbcReplica;
+
+    @BeforeEach
+    void setUp() {
+        jdbcPrimaria = new JdbcTemplate(primaria);
+        jdbcReplica = new JdbcTemplate(replica);
+        // Hibernate crea las tablas solo en la principal: se copia el esquema a la réplica.
+        jdbcReplica.execute("drop all objects");
+        for (String sentencia : jdbcPrimaria.queryForList("script nodata nopasswords nosettings", String.class)) {
+            if (!sentencia.startsWith("--")) {
+                jdbcReplica.execute(sentencia);
+            }
+        }
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbcPrimaria.execute("delete from pedido");
+        jdbcReplica.execute("drop all objects");
+    }
+
+    @Test
+    public void testEscrituraEnPrincipalYLecturaEnReplica() {
+        Pedido pedido = new Pedido();
+        pedido.setClienteId(7L);
+        pedido.setFecha(FECHA);
+        pedidoService.guardarOActualizarPedido(pedido);
+
+        assertEquals(1, jdbcPrimaria.queryForObject("select count(*) from pedido", Integer.class));
+        // La réplica todavía no recibió el pedido
+        assertTrue(pedidoService.obtenerPedidosPorCliente(7L).isEmpty());
+        assertEquals(0, pedidoService.contarPedidosPorCliente(7L));
+
+        jdbcReplica.update("insert into pedido (id, cliente_id, fecha, total, version) values (?, ?, ?, ?, 0)",
+            pedido.getId(), 7L, FECHA, 0.0);
+
+        List<Pedido> leidos = pedidoService.obtenerPedidosPorCliente(7L);
+        assertEquals(1, leidos.size());
+        assertEquals(pedido.getId(), leidos.get(0).getId());
+        assertEquals(1, pedidoService.listarResumenes().size());
+    }
+
+    @Test
+    public void testEscrituraDespuesDeLecturaEnLaMismaPeticion() {
+        // Como con open-in-view: el mismo EntityManager atiende la lectura y después la escritura
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            assertTrue(pedidoService.obtenerPedidosPorCliente(8L).isEmpty());
+            Pedido pedido = new Pedido();
+            pedido.setClienteId(8L);
+            pedido.setFecha(FECHA);
+            pedidoService.save(pedido);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+
+        assertEquals(1, jdbcPrimaria.queryForObject("select count(*) from pedido where cliente_id = 8", Integer.class));
+        assertEquals(0, jdbcReplica.queryForObject("select count(*) from pedido", Integer.class));
+    }
+}
@@ -3,20 +3,34 @@ package com.Vineyard.microservicio.service;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionAttribute;
 
+import com.Vineyard.microservicio.model.EstadoPedido;
 import com.Vineyard.microservicio.model.Pedido;
 import com.Vineyard.microservicio.model.PedidoProducto;
 import com.Vineyard.microservicio.repository.PedidoRepository;
@@ -37,6 +51,22 @@ public class PedidoServiceTest {
     @MockitoBean
     private PedidoRepository pedidoRepository;
 
+    @MockitoBean
+    private CatalogoPrecios catalogoPrecios;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private UltimosPedidosBuffer ultimosPedidosBuffer;
+
+//Vacía las cachés para que cada prueba consulte el repositorio simulado.
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(nombre -> cacheManager.getCache(nombre).clear());
+        ultimosPedidosBuffer.invalidar();
+    }
+
     @Test
     public void testListarPedidos() {
         when(pedidoRepository.findAll()).thenReturn(List.of(new Pedido()));
@@ -47,6 +77,18 @@ public class PedidoServiceTest {
         assertEquals(1, pedidos.size());
     }
 
+    @Test
+    public void testListarPedidosPaginadoLimitaTamanio() {
+        when(pedidoRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(new Pedido())));
+
+        pedidoService.listarPedidos(PageRequest.of(0, 5000));
+
+        // El tamaño pedido por el cliente se recorta al máximo permitido
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        verify(pedidoRepository).findAll(captor.capture());
+        assertEquals(PedidoService.TAMANIO_MAXIMO_PAGINA, captor.getValue().getPageSize());
+    }
+
     @Test
     public void testObtenerPedidosPorCliente() {
         Long clienteId = 1L;
@@ -81,6 +123,18 @@ public class PedidoServiceTest {
         assertEquals(1, pedidos.size());
     }
 
+    @Test
+    public void testFechasPasadasUsanLaConsultaHistorica() {
+        LocalDate ayer = LocalDate.now().minusDays(1);
+        when(pedidoRepository.findHistoricosByFecha(ayer)).thenReturn(List.of(new Pedido()));
+        when(pedidoRepository.findHistoricosByFechaBetween(ayer.minusDays(5), ayer)).thenReturn(List.of(new Pedido()));
+
+        assertEquals(1, pedidoService.obtenerPedidosPorFecha(ayer).size());
+        assertEquals(1, pedidoService.obtenerPedidosEntreFechas(ayer.minusDays(5), ayer).size());
+        verify(pedidoRepository, times(0)).findByFecha(any());
+        verify(pedidoRepository, times(0)).findByFechaBetween(any(), any());
+    }
+
     @Test
     public void testContarPedidosPorCliente() {
         Long clienteId = 1L;
@@ -91,9 +145,38 @@ public class PedidoServiceTest {
         assertEquals(3L, count);
     }
 
+    @Test
+    public void testBuscarPorIdsConsultaPorBloques() {
+        Pedido pedido = new Pedido();
+        pedido.setId(600L);
+        when(pedidoRepository.findByIdIn(any())).thenReturn(List.of()).thenReturn(List.of(pedido)).thenReturn(List.of());
+        // 1200 ids y un repetido: tres bloques de 500, 500 y 200
+        List<Long> ids = new ArrayList<>(LongStream.rangeClosed(1, 1200).boxed().toList());
+        ids.add(600L);
+
+        Map<Long, Pedido> pedidos = pedidoService.buscarPorIds(ids);
+
+        assertEquals(Map.of(600L, pedido), pedidos);
+        ArgumentCaptor<List<Long>> bloques = ArgumentCaptor.captor();
+        verify(pedidoRepository, times(3)).findByIdIn(bloques.capture());
+        assertEquals(List.of(500, 500, 200), bloques.getAllValues().stream().map(List::size).toList());
+    }
+
+    @Test
+    public void testContarPedidosPorClientesIncluyeCeros() {
+        when(pedidoRepository.countByClienteIdIn(List.of(1L, 2L, 3L)))
+            .thenReturn(List.<Object[]>of(new Object[] {3L, 4L}, new Object[] {1L, 2L}));
+
+        Map<Long, Long> cantidades = pedidoService.contarPedidosPorClientes(List.of(1L, 2L, 3L));
+
+        // En el orden pedido, con 0 para el cliente sin pedidos
+        assertEquals(List.of(1L, 2L, 3L), List.copyOf(cantidades.keySet()));
+        assertEquals(List.of(2L, 0L, 4L), List.copyOf(cantidades.values()));
+    }
+
     @Test
     public void testObtenerUltimosPedidos() {
-        when(pedidoRepository.findTop10ByOrderByFechaDesc()).thenReturn(List.of(new Pedido()));
+        when(pedidoRepository.findAllByOrderByFechaDescIdDesc(any(Pageable.class))).thenReturn(List.of(new Pedido()));
 
         List<Pedido> pedidos = pedidoService.obtenerUltimosPedidos();
 
@@ -101,10 +184,19 @@ public class PedidoServiceTest {
         assertEquals(1, pedidos.size());
     }
 
+    @Test
+    public void testObtenerUltimosPedidosSinTransaccion() throws Exception {
+        // Se responde desde memoria: ni la clase ni el método deben abrir transacción (ni tomar conexión)
+        TransactionAttribute atributo = new AnnotationTransactionAttributeSource().getTransactionAttribute(
+            PedidoService.class.getMethod("obtenerUltimosPedidos"), PedidoService.class);
+
+        assertEquals(TransactionDefinition.PROPAGATION_NOT_SUPPORTED, atributo.getPropagationBehavior());
+    }
+
     @Test
     public void testEliminarPedido_Existe() {
         Long id = 1L;
-        when(pedidoRepository.existsById(id)).thenReturn(true);
+        when(pedidoRepository.findEstadoById(id)).thenReturn(Optional.of(new EstadoPedido(2L, LocalDate.now(), 0, 0)));
         doNothing().when(pedidoRepository).deleteById(id);
 
         pedidoService.eliminarPedido(id);
@@ -115,7 +207,7 @@ public class PedidoServiceTest {
     @Test
     public void testEliminarPedido_NoExiste() {
         Long id = 1L;
-        when(pedidoRepository.existsById(id)).thenReturn(false);
+        when(pedidoRepository.findEstadoById(id)).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> pedidoService.eliminarPedido(id));
     }
@@ -134,6 +226,18 @@ public class PedidoServiceTest {
         assertEquals(pedido, producto.getPedido());
     }
 
+
+    @Test
+    public void testGuardarOActualizarPedidoCalculaTotal() {
+        Pedido pedido = new Pedido();
+        pedido.setTotal(1.0);
+        when(pedidoRepository.save(pedido)).thenReturn(pedido);
+
+        pedidoService.guardarOActualizarPedido(pedido);
+
+        // El total se calcula con el catálogo antes de guardar
+        verify(catalogoPrecios, times(1)).actualizarTotal(pedido);
+    }
         
     @Test
     public void testFindById() {
@@ -148,6 +252,53 @@ public class PedidoServiceTest {
     }
 
 
+    @Test
+    public void testFindByIdUsaCache() {
+        Pedido pedido = new Pedido();
+        pedido.setId(1L);
+        when(pedidoRepository.findById(1L)).thenReturn(Optional.of(pedido));
+
+        pedidoService.findById(1L);
+        pedidoService.findById(1L);
+
+        verify(pedidoRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    public void testContarPedidosPorClienteInvalidaAlEliminar() {
+        when(pedidoRepository.countByClienteId(2L)).thenReturn(3L);
+        when(pedidoRepository.findEstadoById(1L)).thenReturn(Optional.of(new EstadoPedido(2L, LocalDate.now(), 0, 0)));
+
+        pedidoService.contarPedidosPorCliente(2L);
+        pedidoService.contarPedidosPorCliente(2L);
+        verify(pedidoRepository, times(1)).countByClienteId(2L);
+
+        // Eliminar un pedido del cliente 2 invalida solo su conteo
+        pedidoService.eliminarPedido(1L);
+        pedidoService.contarPedidosPorCliente(2L);
+        verify(pedidoRepository, times(2)).countByClienteId(2L);
+    }
+
+    @Test
+    public void testActualizarPedidoInvalidaClienteAnterior() {
+        Pedido existente = new Pedido();
+        existente.setId(1L);
+        existente.setClienteId(2L);
+        Pedido datos = new Pedido();
+        datos.setClienteId(3L);
+        datos.setFecha(LocalDate.now());
+        when(pedidoRepository.findById(1L)).thenReturn(Optional.of(existente));
+        when(pedidoRepository.save(existente)).thenReturn(existente);
+        when(pedidoRepository.countByClienteId(2L)).thenReturn(1L);
+
+        pedidoService.contarPedidosPorCliente(2L);
+        Pedido resultado = pedidoService.actualizarPedido(1L, datos);
+        pedidoService.contarPedidosPorCliente(2L);
+
+        assertEquals(3L, resultado.getClienteId());
+        verify(pedidoRepository, times(2)).countByClienteId(2L);
+    }
+
     @Test
     public void testSavePedido() {
         // Crear un pedido de prueba
@@ -0,0 +1,106 @@
+package com.Vineyard.microservicio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.Vineyard.microservicio.event.PedidoEliminadoEvent;
+import com.Vineyard.microservicio.event.PedidoGuardadoEvent;
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.repository.PedidoRepository;
+
+//Prueba unitaria del buffer: la base se simula con un repositorio mock.
+public class UltimosPedidosBufferTest {
+
+    private static final LocalDate HOY = LocalDate.of(2025, 5, 24);
+
+    private PedidoRepository pedidoRepository;
+
+    private UltimosPedidosBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        pedidoRepository = mock(PedidoRepository.class);
+        buffer = new UltimosPedidosBuffer(2, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(buffer, "pedidoRepository", pedidoRepository);
+    }
+
+    @Test
+    public void testObtenerCargaUnaSolaVez() {
+        when(pedidoRepository.findAllByOrderByFechaDescIdDesc(any(Pageable.class)))
+            .thenReturn(List.of(pedido(3L, HOY), pedido(2L, HOY), pedido(1L, HOY.minusDays(1))));
+
+        assertEquals(List.of(3L, 2L), ids(buffer.obtener()));
+        assertEquals(List.of(3L, 2L), ids(buffer.obtener()));
+
+        verify(pedidoRepository, times(1)).findAllByOrderByFechaDescIdDesc(any(Pageable.class));
+    }
+
+    @Test
+    public void testPedidoGuardadoDesempataPorId() {
+        when(pedidoRepository.findAllByOrderByFechaDescIdDesc(any(Pageable.class)))
+            .thenReturn(List.of(pedido(3L, HOY), pedido(1L, HOY)));
+        buffer.obtener();
+
+        // Mismo día que los demás: queda ordenado por id
+        buffer.pedidoGuardado(new PedidoGuardadoEvent(pedido(2L, HOY), null));
+        assertEquals(List.of(3L, 2L), ids(buffer.obtener()));
+
+        // Un pedido de una fecha posterior pasa al primer lugar
+        buffer.pedidoGuardado(new PedidoGuardadoEvent(pedido(4L, HOY.plusDays(1)), null));
+        assertEquals(List.of(4L, 3L), ids(buffer.obtener()));
+
+        verify(pedidoRepository, times(1)).findAllByOrderByFechaDescIdDesc(any(Pageable.class));
+    }
+
+    @Test
+    public void testPedidoEliminadoSinReleerLaBase() {
+        when(pedidoRepository.findAllByOrderByFechaDescIdDesc(any(Pageable.class)))
+            .thenReturn(List.of(pedido(4L, HOY), pedido(3L, HOY), pedido(2L, HOY), pedido(1L, HOY)));
+        buffer.obtener();
+
+        buffer.pedidoEliminado(new PedidoEliminadoEvent(4L, null));
+
+        assertEquals(List.of(3L, 2L), ids(buffer.obtener()));
+        verify(pedidoRepository, times(1)).findAllByOrderByFechaDescIdDesc(any(Pageable.class));
+    }
+
+    @Test
+    public void testPedidoEliminadoRecargaSiFaltanPedidos() {
+        when(pedidoRepository.findAllByOrderByFechaDescIdDesc(any(Pageable.class)))
+            .thenReturn(List.of(pedido(4L, HOY), pedido(3L, HOY), pedido(2L, HOY), pedido(1L, HOY)));
+        buffer.obtener();
+
+        buffer.pedidoEliminado(new PedidoEliminadoEvent(4L, null));
+        buffer.pedidoEliminado(new PedidoEliminadoEvent(3L, null));
+        buffer.pedidoEliminado(new PedidoEliminadoEvent(2L, null));
+        buffer.obtener();
+
+        // Quedó un solo pedido y la base puede tener más: se vuelve a cargar
+        verify(pedidoRepository, times(2)).findAllByOrderByFechaDescIdDesc(any(Pageable.class));
+    }
+
+    private static Pedido pedido(Long id, LocalDate fecha) {
+        Pedido pedido = new Pedido();
+        pedido.setId(id);
+        pedido.setClienteId(1L);
+        pedido.setFecha(fecha);
+        return pedido;
+    }
+
+    private static List<Long> ids(List<Pedido> pedidos) {
+        return pedidos.stream().map(Pedido::getId).toList();
+    }
+}
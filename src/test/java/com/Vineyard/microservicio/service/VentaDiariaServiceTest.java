@@ -0,0 +1,199 @@
+package com.Vineyard.microservicio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.Vineyard.microservicio.dto.ClienteTop;
+import com.Vineyard.microservicio.dto.ResumenVentas;
+import com.Vineyard.microservicio.dto.VentaDia;
+import com.Vineyard.microservicio.model.Pedido;
+import com.Vineyard.microservicio.model.PedidoProducto;
+import com.Vineyard.microservicio.model.PedidoProductoId;
+import com.Vineyard.microservicio.repository.PedidoRepository;
+
+//El resumen se escribe antes de cada commit, por eso la prueba no corre dentro de una transacción.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@TestPropertySource(properties = {"pedidos.precios.calcular-total=true", "pedidos.top.memoria=true"})
+@Import({PedidoService.class, CargaMasivaPedidoService.class, UltimosPedidosBuffer.class, CatalogoPrecios.class,
+    VentaDiariaService.class, VentasHoyPorCliente.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class VentaDiariaServiceTest {
+
+    private static final LocalDate DIA_1 = LocalDate.of(2025, 5, 24);
+    private static final LocalDate DIA_2 = LocalDate.of(2025, 5, 25);
+
+    @Autowired
+    private VentaDiariaService ventaDiariaService;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private CargaMasivaPedidoService cargaMasivaPedidoService;
+
+    @Autowired
+    private CatalogoPrecios catalogoPrecios;
+
+    @Autowired
+    private VentasHoyPorCliente ventasHoyPorCliente;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        catalogoPrecios.reemplazar(new long[] {1L, 2L}, new double[] {10.0, 5.0}, 2);
+        // La base H2 se comparte entre contextos: otras pruebas pueden haber dejado filas en los resúmenes
+        limpiar();
+        ventasHoyPorCliente.invalidar();
+    }
+
+    @AfterEach
+    void limpiar() {
+        pedidoRepository.deleteAll();
+        jdbcTemplate.update("delete from venta_diaria");
+        jdbcTemplate.update("delete from venta_diaria_cliente");
+    }
+
+    @Test
+    public void testResumenSeActualizaConCadaEscritura() {
+        Pedido a = pedidoService.guardarOActualizarPedido(nuevoPedido(1L, DIA_1, 1L, 2));
+        Pedido b = pedidoService.guardarOActualizarPedido(nuevoPedido(2L, DIA_1, 2L, 1));
+        // A cambia de día y de cantidad; B cambia de cantidad
+        pedidoService.actualizarPedido(a.getId(), nuevoPedido(1L, DIA_2, 1L, 3));
+        pedidoService.actualizarProductoPedido(b.getId(), 2L, 4, null);
+        // C se crea y se elimina: no debe quedar en el resumen
+        Pedido c = pedidoService.guardarOActualizarPedido(nuevoPedido(1L, DIA_2, 2L, 1));
+        pedidoService.eliminarPedido(c.getId());
+
+        ResumenVentas resumen = ventaDiariaService.consultar(DIA_1, DIA_2, null);
+        assertEquals(List.of(new VentaDia(DIA_1, 1, 4, 20.0), new VentaDia(DIA_2, 1, 3, 30.0)), resumen.getDias());
+        assertEquals(2, resumen.getPedidos());
+        assertEquals(50.0, resumen.getIngresos());
+
+        ResumenVentas cliente1 = ventaDiariaService.consultar(DIA_1, DIA_2, 1L);
+        assertEquals(List.of(new VentaDia(DIA_2, 1, 3, 30.0)), cliente1.getDias());
+
+        // Reconstruir desde los pedidos da el mismo resultado
+        ventaDiariaService.reconstruir(DIA_1, DIA_2);
+        assertEquals(resumen, ventaDiariaService.consultar(DIA_1, DIA_2, null));
+        assertEquals(cliente1, ventaDiariaService.consultar(DIA_1, DIA_2, 1L));
+    }
+
+    @Test
+    public void testCargaMasivaSumaPorDia() {
+        List<Pedido> pedidos = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            pedidos.add(nuevoPedido(1L + i % 3, DIA_1, 1L, 1));
+        }
+
+        cargaMasivaPedidoService.cargarPedidos(pedidos);
+
+        assertEquals(List.of(new VentaDia(DIA_1, 30, 30, 300.0)), ventaDiariaService.consultar(DIA_1, DIA_1, null).getDias());
+        assertEquals(List.of(new VentaDia(DIA_1, 10, 10, 100.0)), ventaDiariaService.consultar(DIA_1, DIA_1, 2L).getDias());
+        // Una sola fila por día aunque se hayan cargado 30 pedidos
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from venta_diaria", Integer.class));
+    }
+
+    @Test
+    public void testTopClientesEnRango() {
+        pedidoService.guardarOActualizarPedido(nuevoPedido(1L, DIA_1, 1L, 1));
+        pedidoService.guardarOActualizarPedido(nuevoPedido(1L, DIA_2, 1L, 1));
+        pedidoService.guardarOActualizarPedido(nuevoPedido(2L, DIA_1, 1L, 5));
+        pedidoService.guardarOActualizarPedido(nuevoPedido(3L, DIA_2, 2L, 1));
+
+        assertEquals(List.of(new ClienteTop(1L, 2, 2, 20.0), new ClienteTop(2L, 1, 5, 50.0)),
+            ventaDiariaService.topClientes(DIA_1, DIA_2, 2, VentaDiariaService.Criterio.PEDIDOS));
+        assertEquals(List.of(new ClienteTop(2L, 1, 5, 50.0), new ClienteTop(1L, 2, 2, 20.0), new ClienteTop(3L, 1, 1, 5.0)),
+            ventaDiariaService.topClientes(DIA_1, DIA_2, 10, VentaDiariaService.Criterio.INGRESOS));
+        // Solo DIA_2: el cliente 2 no tiene pedidos; empate en pedidos, desempatan los ingresos
+        assertEquals(List.of(new ClienteTop(1L, 1, 1, 10.0), new ClienteTop(3L, 1, 1, 5.0)),
+            ventaDiariaService.topClientes(DIA_2, DIA_2, 10, VentaDiariaService.Criterio.PEDIDOS));
+    }
+
+    @Test
+    public void testTopClientesDeHoyDesdeMemoria() {
+        LocalDate hoy = LocalDate.now();
+        Pedido a = pedidoService.guardarOActualizarPedido(nuevoPedido(1L, hoy, 1L, 1));
+        // Primera lectura: carga desde el resumen
+        assertEquals(List.of(new ClienteTop(1L, 1, 1, 10.0)),
+            ventaDiariaService.topClientes(hoy, hoy, 5, VentaDiariaService.Criterio.PEDIDOS));
+
+        pedidoService.guardarOActualizarPedido(nuevoPedido(2L, hoy, 2L, 1));
+        pedidoService.guardarOActualizarPedido(nuevoPedido(2L, hoy, 2L, 1));
+        Pedido c = pedidoService.guardarOActualizarPedido(nuevoPedido(3L, hoy, 1L, 1));
+        pedidoService.actualizarPedido(a.getId(), nuevoPedido(1L, hoy, 1L, 3));
+        pedidoService.eliminarPedido(c.getId());
+        // Pedido de otro día: no cuenta para hoy
+        pedidoService.guardarOActualizarPedido(nuevoPedido(3L, DIA_1, 1L, 9));
+
+        List<ClienteTop> esperado = List.of(new ClienteTop(2L, 2, 2, 10.0), new ClienteTop(1L, 1, 3, 30.0));
+        // Un rango más largo que hoy se consulta en la base: coincide con los contadores
+        assertEquals(esperado, ventaDiariaService.topClientes(hoy, LocalDate.of(2100, 1, 1), 5, VentaDiariaService.Criterio.PEDIDOS));
+        // Sin leer la base: aunque se borre el resumen, la respuesta sale de los contadores
+        jdbcTemplate.update("delete from venta_diaria_cliente");
+        assertEquals(esperado, ventaDiariaService.topClientes(hoy, hoy, 5, VentaDiariaService.Criterio.PEDIDOS));
+    }
+
+    @Test
+    public void testRecargaEntreElCommitYLosContadoresNoSumaDosVeces() {
+        LocalDate hoy = LocalDate.now();
+        ventaDiariaService.topClientes(hoy, hoy, 5, VentaDiariaService.Criterio.PEDIDOS);
+        List<List<ClienteTop>> leidos = new ArrayList<>();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            pedidoService.guardarOActualizarPedido(nuevoPedido(1L, hoy, 1L, 1));
+            // Ya confirmado en venta_diaria_cliente, antes de que se sume en memoria: una recarga lo lee de la base
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ventasHoyPorCliente.recargar();
+                    leidos.add(ventaDiariaService.topClientes(hoy, hoy, 5, VentaDiariaService.Criterio.PEDIDOS));
+                }
+            });
+        });
+
+        List<ClienteTop> esperado = List.of(new ClienteTop(1L, 1, 1, 10.0));
+        assertEquals(List.of(esperado), leidos);
+        assertEquals(esperado, ventaDiariaService.topClientes(hoy, hoy, 5, VentaDiariaService.Criterio.PEDIDOS));
+    }
+
+    private static Pedido nuevoPedido(Long clienteId, LocalDate fecha, Long productoId, int cantidad) {
+        Pedido pedido = new Pedido();
+        pedido.setClienteId(clienteId);
+        pedido.setFecha(fecha);
+        PedidoProducto producto = new PedidoProducto();
+        producto.setId(new PedidoProductoId(null, productoId));
+        producto.setCantidad(cantidad);
+        pedido.getProductos().add(producto);
+        return pedido;
+    }
+}